@@ -0,0 +1,74 @@
+package matrix;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Buscadores de caminos de un turno: BFS de un agente, campo de persecución
+ * compartido, campo de amenaza, Dijkstra de Neo y el costo de una celda.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BusquedaBenchmark {
+    @Param({"10", "100", "1000"})
+    int tamanio;
+
+    @Param({"0.05", "0.20"})
+    double densidadMuros;
+
+    @Param({"4", "64"})
+    int agentes;
+
+    private MatrixGame juego;
+    private Neo neo;
+    private AlmacenAgentes almacen;
+    private int telefono;
+    private CampoPersecucion campo;
+    private CampoAmenaza amenaza;
+    private int celda;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        juego = Escenarios.crear(tamanio, densidadMuros, agentes, Escenarios.SEMILLA);
+        juego.prepararPartida();
+        neo = juego.getNeo();
+        almacen = juego.getAlmacenAgentes();
+        telefono = juego.getInstantanea().celdaTelefono(0);
+        campo = juego.getCampoPersecucion();
+        amenaza = juego.getCampoAmenaza();
+    }
+
+    @Benchmark
+    public int bfsConCoordinacion() {
+        return almacen.bfsConCoordinacion(0);
+    }
+
+    @Benchmark
+    public int campoPersecucion() {
+        campo.calcular(juego.getInstantanea());
+        return campo.distancia(0, 0);
+    }
+
+    @Benchmark
+    public int campoAmenaza() {
+        amenaza.calcular(juego.getInstantanea());
+        return amenaza.costo(0);
+    }
+
+    @Benchmark
+    public int dijkstra() {
+        return neo.dijkstra(telefono);
+    }
+
+    @Benchmark
+    public int calcularCosto() {
+        // Recorre el tablero celda por celda para no medir siempre la misma posición
+        celda = (celda + 7919) % (tamanio * tamanio);
+        return neo.calcularCosto(celda % tamanio, celda / tamanio);
+    }
+}
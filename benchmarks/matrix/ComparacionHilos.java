@@ -0,0 +1,144 @@
+package matrix;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compara hilos de plataforma contra hilos virtuales con muchos agentes:
+ * tiempo de creación de los hilos, memoria máxima y latencia promedio por turno.
+ *
+ * Cada medición corre en su propia JVM para que la memoria de una no ensucie la
+ * siguiente y para que un fallo al crear hilos (límite del sistema operativo) no
+ * deje la comparación colgada.
+ *
+ * Uso: java -cp target/benchmarks.jar matrix.ComparacionHilos [agentes...]
+ *      (por defecto 1000 10000 100000)
+ */
+public class ComparacionHilos {
+    private static final int TURNOS = 20;
+    private static final long LIMITE_MINUTOS = 10;
+    private static final ModoEjecucion[] MODOS = {ModoEjecucion.HILOS, ModoEjecucion.VIRTUALES};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--medir")) {
+            medir(ModoEjecucion.valueOf(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+
+        int[] cantidades = args.length == 0 ? new int[] {1_000, 10_000, 100_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.println(String.format("%-10s %8s %8s %14s %12s %12s %14s",
+                "Modo", "Agentes", "Turnos", "Creación (ms)", "Heap (MB)", "RSS (MB)", "Turno (ms)"));
+        for (int agentes : cantidades) {
+            for (ModoEjecucion modo : MODOS) {
+                System.out.println(ejecutarEnOtraJvm(modo, agentes));
+            }
+        }
+    }
+
+    /**
+     * Lanza una JVM hija con el mismo classpath y devuelve su línea de resultado
+     */
+    private static String ejecutarEnOtraJvm(ModoEjecucion modo, int agentes) throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process proceso = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ComparacionHilos.class.getName(), "--medir", modo.name(), String.valueOf(agentes))
+                .redirectErrorStream(true)
+                .start();
+
+        List<String> lineas = new ArrayList<>();
+        Thread lector = new Thread(() -> {
+            try (BufferedReader entrada = new BufferedReader(new InputStreamReader(proceso.getInputStream()))) {
+                String linea;
+                while ((linea = entrada.readLine()) != null) {
+                    lineas.add(linea);
+                }
+            } catch (IOException e) {
+                lineas.add(e.getMessage());
+            }
+        });
+        lector.start();
+
+        if (!proceso.waitFor(LIMITE_MINUTOS, TimeUnit.MINUTES)) {
+            proceso.destroyForcibly();
+            lector.join();
+            return String.format("%-10s %8d   tiempo agotado (%d min)", modo, agentes, LIMITE_MINUTOS);
+        }
+        lector.join();
+        return lineas.isEmpty() ? String.format("%-10s %8d   sin resultado", modo, agentes)
+                : lineas.get(lineas.size() - 1);
+    }
+
+    /**
+     * Juega una partida de TURNOS turnos en esta JVM y muestra una sola línea con las mediciones
+     */
+    private static void medir(ModoEjecucion modo, int agentes) {
+        // Tablero con unas cuatro celdas por agente para que todos entren
+        int lado = (int) Math.ceil(Math.sqrt(agentes * 4.0));
+        MatrixGame juego = new MatrixGame(lado, lado);
+        juego.setSemilla(Escenarios.SEMILLA);
+        juego.setResolucionDeterminista(true);
+        juego.setCantidadAgentes(agentes);
+        juego.setMaxMuros(lado);
+        juego.setMaxTurnos(TURNOS);
+        juego.setModoEjecucion(modo);
+
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBase = memoria.getHeapMemoryUsage().getUsed();
+        long rssBase = rssActual();
+        long[] maximos = {heapBase, rssBase};
+
+        Thread muestreo = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                maximos[0] = Math.max(maximos[0], memoria.getHeapMemoryUsage().getUsed());
+                maximos[1] = Math.max(maximos[1], rssActual());
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        muestreo.setDaemon(true);
+        muestreo.start();
+
+        try {
+            juego.jugarSinConsola();
+        } catch (Throwable e) {
+            System.out.println(String.format("%-10s %8d   no se pudieron crear los hilos: %s", modo, agentes, e));
+            // Los hilos que llegaron a arrancar quedan esperando el turno
+            Runtime.getRuntime().halt(1);
+        }
+        muestreo.interrupt();
+
+        int turnos = juego.getTurnoActual();
+        System.out.println(String.format("%-10s %8d %8d %14.1f %12.1f %12s %14.2f",
+                modo, agentes, turnos,
+                juego.getNanosCreacionHilos() / 1e6,
+                (maximos[0] - heapBase) / 1e6,
+                rssBase < 0 ? "n/d" : String.format("%.1f", (maximos[1] - rssBase) / 1e6),
+                turnos == 0 ? 0.0 : juego.getNanosTurnos() / 1e6 / turnos));
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * Memoria residente del proceso en bytes (incluye las pilas nativas), o -1 fuera de Linux
+     */
+    private static long rssActual() {
+        try {
+            for (String linea : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (linea.startsWith("VmRSS:")) {
+                    return Long.parseLong(linea.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Sin /proc no hay forma portable de leer la memoria residente
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,28 @@
+package matrix;
+
+/**
+ * Mundos de prueba reproducibles para los benchmarks.
+ * Todos usan la misma semilla, así que cada combinación de parámetros mide siempre el mismo mapa.
+ */
+final class Escenarios {
+    static final long SEMILLA = 42L;
+
+    private Escenarios() {
+    }
+
+    /**
+     * Crea una partida configurada pero sin iniciar
+     *
+     * @param tamanio lado del tablero cuadrado
+     * @param densidadMuros fracción máxima de celdas con muro
+     * @param agentes cantidad de agentes a ubicar
+     */
+    static MatrixGame crear(int tamanio, double densidadMuros, int agentes, long semilla) {
+        MatrixGame juego = new MatrixGame(tamanio, tamanio);
+        juego.setSemilla(semilla);
+        juego.setResolucionDeterminista(true);
+        juego.setCantidadAgentes(agentes);
+        juego.setMaxMuros(Math.max(1, (int) (densidadMuros * tamanio * tamanio)));
+        return juego;
+    }
+}
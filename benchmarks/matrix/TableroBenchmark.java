@@ -0,0 +1,50 @@
+package matrix;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Impresión del tablero en consola. La salida se descarta para medir solo el
+ * costo de armar y escribir el tablero, no el de la terminal.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TableroBenchmark {
+    @Param({"10", "100"})
+    int tamanio;
+
+    @Param({"0.05", "0.20"})
+    double densidadMuros;
+
+    @Param({"4", "64"})
+    int agentes;
+
+    private MatrixGame juego;
+    private PrintStream salidaOriginal;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        juego = Escenarios.crear(tamanio, densidadMuros, agentes, Escenarios.SEMILLA);
+        juego.prepararPartida();
+
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restaurar() {
+        System.setOut(salidaOriginal);
+    }
+
+    @Benchmark
+    public void imprimirTablero() {
+        juego.imprimirTablero();
+    }
+}
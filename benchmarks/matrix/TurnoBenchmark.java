@@ -0,0 +1,58 @@
+package matrix;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Un turno completo con los hilos reales: todos calculan, llegan al final de
+ * la fase de cálculo, aplican y llegan al final de la fase de aplicación. El
+ * hilo del benchmark participa en ambas fases (modo paso a paso).
+ *
+ * Cuando una partida termina se empieza otra con la siguiente semilla; ese
+ * reinicio queda incluido en la medición de la invocación en que ocurre.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TurnoBenchmark {
+    @Param({"10", "100", "1000"})
+    int tamanio;
+
+    @Param({"0.05", "0.20"})
+    double densidadMuros;
+
+    @Param({"4", "64"})
+    int agentes;
+
+    private MatrixGame juego;
+    private long semilla;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        semilla = Escenarios.SEMILLA;
+        nuevaPartida();
+    }
+
+    @TearDown(Level.Iteration)
+    public void terminar() {
+        juego.terminarPartida();
+    }
+
+    @Benchmark
+    public boolean turnoCompleto() {
+        if (juego.avanzarTurno()) {
+            return true;
+        }
+        nuevaPartida();
+        return false;
+    }
+
+    private void nuevaPartida() {
+        juego = Escenarios.crear(tamanio, densidadMuros, agentes, semilla++);
+        juego.iniciarPasoAPaso();
+    }
+}
@@ -0,0 +1,575 @@
+package matrix;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Estado de todos los agentes en arreglos paralelos (estructura de arreglos):
+ * ids, posiciones x e y, un bitset de vivos y lo que cada uno calculó en el turno.
+ * La lógica de los agentes recorre rangos de índices sobre estos arreglos, así que
+ * un millón de agentes ocupa unas decenas de MB y se recorre de forma secuencial
+ * en memoria, sin un objeto ni llamadas virtuales por agente.
+ *
+ * El agente del índice i ocupa la ranura i + 1 en PosicionesTurno (la 0 es de Neo).
+ * Cada índice solo lo escribe quien procesa su rango, así que los rangos se pueden
+ * repartir entre hilos sin bloqueos; la fase siguiente empieza después de una barrera.
+ */
+public class AlmacenAgentes {
+    private static final int SIN_CAMINO = -1;
+    private static final int[][] ORDEN_DIRECCIONES = ordenarDirecciones();
+
+    private final Mundo mundo;
+    private int cantidad;
+    private int[] ids;
+    private int[] x;
+    private int[] y;
+    private long[] vivos;
+    // Celda elegida en el cálculo y celda reservada para moverse (SIN_CAMINO = se queda quieto)
+    private int[] candidatos;
+    private int[] proximas;
+    // Índices ordenados por id: el orden en que el coordinador resuelve las reservas
+    private int[] ordenPorId;
+
+    // Contexto de la partida, asignado por MatrixGame antes del primer turno
+    private Neo neo;
+    private CampoPersecucion campo;
+    private TablaReservas reservas;
+    private PosicionesTurno posiciones;
+    private ReentrantLock lockTablero;
+    private AtomicReference<InstantaneaMundo> mundoPublicado;
+    // Vista con la que se calculó y aplicó el turno en curso; la verificación ya ve la siguiente
+    private InstantaneaMundo vistaDelTurno;
+    private BusEventos eventos;
+    private MetricasJuego metricas;
+    // Si es true las reservas no se disputan entre hilos: las resuelve el coordinador en orden de id
+    private boolean resolucionDeterminista;
+    // Memoria de búsqueda de la BFS individual, una por hilo que la use
+    private final ThreadLocal<EspacioBusqueda> espacios;
+    // Componentes de las celdas libres: un agente separado de Neo por muros no busca
+    private ComponentesConexas componentes;
+    // Con mapa jerárquico cada agente busca con HPA* en lugar del campo o la BFS
+    private MapaJerarquico mapaJerarquico;
+    private final ThreadLocal<ConsultaJerarquica> consultas;
+    private final ThreadLocal<CostoJerarquico> costos;
+
+    public AlmacenAgentes(Mundo mundo, int capacidad) {
+        this.mundo = mundo;
+        int inicial = Math.max(capacidad, 1);
+        this.ids = new int[inicial];
+        this.x = new int[inicial];
+        this.y = new int[inicial];
+        this.vivos = new long[(inicial + 63) >>> 6];
+        this.espacios = ThreadLocal.withInitial(() -> new EspacioBusqueda(mundo));
+        this.consultas = ThreadLocal.withInitial(() -> new ConsultaJerarquica(espacios.get()));
+        this.costos = ThreadLocal.withInitial(CostoJerarquico::new);
+    }
+
+    /**
+     * Agrega un agente vivo y devuelve su índice
+     */
+    public int agregar(int id, int posX, int posY) {
+        if (cantidad == ids.length) {
+            int nueva = cantidad * 2;
+            ids = Arrays.copyOf(ids, nueva);
+            x = Arrays.copyOf(x, nueva);
+            y = Arrays.copyOf(y, nueva);
+            vivos = Arrays.copyOf(vivos, (nueva + 63) >>> 6);
+        }
+        int i = cantidad++;
+        ids[i] = id;
+        x[i] = posX;
+        y[i] = posY;
+        vivos[i >>> 6] |= 1L << i;
+        return i;
+    }
+
+    // Acceso por índice
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    public boolean estaVivo(int i) {
+        return (vivos[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Solo entre turnos (al generar o restaurar la partida): el bitset no es seguro entre hilos
+     */
+    public void setVivo(int i, boolean vivo) {
+        if (vivo) {
+            vivos[i >>> 6] |= 1L << i;
+        } else {
+            vivos[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    public int contarVivos() {
+        int total = 0;
+        for (int palabra = 0; palabra < (cantidad + 63) >>> 6; palabra++) {
+            total += Long.bitCount(vivos[palabra]);
+        }
+        return total;
+    }
+
+    /**
+     * Bitset de vivos por ranura: la ranura 0 es Neo y la i + 1 el agente i
+     */
+    public long[] vivosPorRanura(boolean neoVivo) {
+        int ranuras = cantidad + 1;
+        long[] resultado = new long[(ranuras + 63) >>> 6];
+        long acarreo = neoVivo ? 1L : 0L;
+        for (int palabra = 0; palabra < resultado.length; palabra++) {
+            long actual = palabra < vivos.length ? vivos[palabra] : 0L;
+            resultado[palabra] = (actual << 1) | acarreo;
+            acarreo = actual >>> 63;
+        }
+        // Los bits más allá del último agente pueden quedar de una capacidad mayor
+        int sobrantes = resultado.length * 64 - ranuras;
+        if (sobrantes > 0) {
+            resultado[resultado.length - 1] &= -1L >>> sobrantes;
+        }
+        return resultado;
+    }
+
+    /**
+     * Prepara los agentes para jugar con el contexto de la partida y publica sus posiciones iniciales
+     */
+    public void preparar(Neo neo, CampoPersecucion campo, TablaReservas reservas, PosicionesTurno posiciones,
+                         ReentrantLock lockTablero, boolean resolucionDeterminista) {
+        this.neo = neo;
+        this.campo = campo;
+        this.reservas = reservas;
+        this.posiciones = posiciones;
+        this.lockTablero = lockTablero;
+        this.resolucionDeterminista = resolucionDeterminista;
+        this.candidatos = new int[cantidad];
+        this.proximas = new int[cantidad];
+        Arrays.fill(proximas, SIN_CAMINO);
+        this.ordenPorId = ordenarPorId();
+        for (int i = 0; i < cantidad; i++) {
+            posiciones.iniciar(i + 1, x[i], y[i]);
+        }
+    }
+
+    public void setMundoPublicado(AtomicReference<InstantaneaMundo> mundoPublicado) {
+        this.mundoPublicado = mundoPublicado;
+    }
+
+    public void setEventos(BusEventos eventos) {
+        this.eventos = eventos;
+    }
+
+    public void setMetricas(MetricasJuego metricas) {
+        this.metricas = metricas;
+    }
+
+    public void setComponentes(ComponentesConexas componentes) {
+        this.componentes = componentes;
+    }
+
+    public void setMapaJerarquico(MapaJerarquico mapaJerarquico) {
+        this.mapaJerarquico = mapaJerarquico;
+    }
+
+    /**
+     * Fase 1 del turno para los agentes [desde, hasta): elige el próximo paso sin moverse
+     */
+    public void calcular(int desde, int hasta) {
+        if (!neo.isJuegoActivo()) {
+            return;
+        }
+        InstantaneaMundo vista = mundoPublicado.get();
+        for (int i = desde; i < hasta; i++) {
+            if (!estaVivo(i)) {
+                continue;
+            }
+            if (metricas == null) {
+                calcularAgente(i, vista);
+            } else {
+                long inicio = System.nanoTime();
+                calcularAgente(i, vista);
+                metricas.registrarCalculo(System.nanoTime() - inicio);
+            }
+        }
+    }
+
+    /**
+     * Reserva en orden de id los movimientos calculados, de la posición desde a la hasta
+     * de ese orden. En modo determinista lo llama el coordinador al terminar la fase de
+     * cálculo, en una sola pasada secuencial: ante un conflicto gana siempre el id menor.
+     */
+    public void resolver(int desde, int hasta) {
+        InstantaneaMundo vista = mundoPublicado.get();
+        for (int k = desde; k < hasta; k++) {
+            int i = ordenPorId[k];
+            if (estaVivo(i)) {
+                proximas[i] = reservarMovimiento(i, vista);
+            }
+        }
+    }
+
+    /**
+     * Fase 2 del turno: mueve a los agentes que reservaron celda.
+     * Sin bloqueo: cada uno escribe solo su ranura, se mueva o no; el índice de ocupación se actualiza al cerrar el turno
+     */
+    public void aplicar(int desde, int hasta) {
+        boolean activo = neo.isJuegoActivo();
+        InstantaneaMundo vista = mundoPublicado.get();
+        for (int i = desde; i < hasta; i++) {
+            int proxima = proximas[i];
+            if (activo && proxima != SIN_CAMINO && estaVivo(i)) {
+                x[i] = mundo.x(proxima);
+                y[i] = mundo.y(proxima);
+                registrarEvento(vista, TipoEvento.MOVIMIENTO, ids[i], x[i], y[i]);
+            }
+            posiciones.escribir(i + 1, x[i], y[i]);
+        }
+    }
+
+    /**
+     * La llama el coordinador al terminar el cálculo, con todos detenidos: la captura se
+     * sella con el turno de esta vista y no con el de la que ya está publicada al verificar
+     */
+    public void cerrarCalculo(InstantaneaMundo vista) {
+        this.vistaDelTurno = vista;
+    }
+
+    /**
+     * Después de aplicar: verifica si algún agente del rango capturó a Neo
+     */
+    public void verificar(int desde, int hasta) {
+        if (!neo.isJuegoActivo()) {
+            return;
+        }
+        int neoX = neo.getPosX();
+        int neoY = neo.getPosY();
+        for (int i = desde; i < hasta; i++) {
+            if (x[i] == neoX && y[i] == neoY && estaVivo(i) && neo.isVivo()) {
+                capturar(i);
+            }
+        }
+    }
+
+    private void capturar(int i) {
+        lockTablero.lock();
+        try {
+            if (neo.isVivo()) {
+                registrarEvento(vistaDelTurno, TipoEvento.CAPTURA, ids[i], x[i], y[i]);
+                neo.setVivo(false);
+                neo.setJuegoActivo(false);
+            }
+        } finally {
+            lockTablero.unlock();
+        }
+    }
+
+    /**
+     * Calcula el próximo movimiento con coordinación entre agentes
+     */
+    private void calcularAgente(int i, InstantaneaMundo vista) {
+        if (!vista.estaVivo(0)) {
+            candidatos[i] = SIN_CAMINO;
+            proximas[i] = SIN_CAMINO;
+            return;
+        }
+
+        // Con campo compartido basta bajar por él; sin campo cada agente hace su propia búsqueda
+        if (mapaJerarquico != null) {
+            candidatos[i] = buscarJerarquico(i, vista);
+        } else {
+            candidatos[i] = campo != null ? descenderCampo(i, vista) : bfsConCoordinacion(i, vista);
+        }
+
+        // En modo determinista la reserva se decide después, en orden, y no según qué hilo llegue primero
+        proximas[i] = resolucionDeterminista ? SIN_CAMINO : reservarMovimiento(i, vista);
+    }
+
+    /**
+     * Reserva la celda candidata o, si ya está tomada, una alternativa libre
+     */
+    private int reservarMovimiento(int i, InstantaneaMundo vista) {
+        int siguientePaso = candidatos[i];
+        if (siguientePaso == SIN_CAMINO || reservar(siguientePaso)) {
+            return siguientePaso;
+        }
+        registrarEvento(vista, TipoEvento.CONFLICTO_RESERVA, ids[i], mundo.x(siguientePaso), mundo.y(siguientePaso));
+        if (metricas != null) {
+            metricas.sumarConflictoReserva();
+        }
+        return reservarPosicionAlternativa(i, vista);
+    }
+
+    /**
+     * Reserva una posición alternativa si la preferida ya está tomada.
+     * La reserva es atómica, así que dos agentes nunca se quedan con la misma celda
+     */
+    private int reservarPosicionAlternativa(int i, InstantaneaMundo vista) {
+        for (int dir = 0; dir < 4; dir++) {
+            int nx = x[i] + Mundo.DX[dir];
+            int ny = y[i] + Mundo.DY[dir];
+            if (!mundo.contiene(nx, ny)) continue;
+            if (vista.hayMuro(nx, ny)) continue;
+            if (vista.hayTelefono(nx, ny)) continue;
+
+            int celda = mundo.indice(nx, ny);
+            if (reservar(celda)) {
+                return celda;
+            }
+        }
+        return SIN_CAMINO;
+    }
+
+    /**
+     * Con resolución determinista solo reserva el coordinador, así que no hace falta la operación atómica
+     */
+    private boolean reservar(int celda) {
+        return resolucionDeterminista ? reservas.reservarEnOrden(celda) : reservas.reservar(celda);
+    }
+
+    /**
+     * Índices de los agentes ordenados por id; casi siempre ya lo están y el arreglo es la identidad
+     */
+    private int[] ordenarPorId() {
+        int[] orden = new int[cantidad];
+        boolean ordenados = true;
+        for (int i = 0; i < cantidad; i++) {
+            orden[i] = i;
+            ordenados &= i == 0 || ids[i - 1] <= ids[i];
+        }
+        if (ordenados) {
+            return orden;
+        }
+        // Id en los 32 bits altos e índice en los bajos: ordenar los long ordena por id
+        long[] claves = new long[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            claves[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(claves);
+        for (int k = 0; k < cantidad; k++) {
+            orden[k] = (int) claves[k];
+        }
+        return orden;
+    }
+
+    /**
+     * BFS individual del agente i sobre la última instantánea publicada
+     */
+    int bfsConCoordinacion(int i) {
+        return bfsConCoordinacion(i, mundoPublicado.get());
+    }
+
+    /**
+     * BFS con coordinación entre agentes
+     */
+    private int bfsConCoordinacion(int i, InstantaneaMundo vista) {
+        int neoX = vista.x(0);
+        int neoY = vista.y(0);
+        int destino = mundo.indice(neoX, neoY);
+        if (!alcanzable(i, destino)) {
+            return SIN_CAMINO;
+        }
+
+        int[] direccionesOrdenadas = ORDEN_DIRECCIONES[calcularDireccionPreferida(i, neoX, neoY)];
+
+        EspacioBusqueda espacio = espacios.get();
+        espacio.reiniciar();
+        ColaEnteros cola = espacio.getCola();
+        MarcasVisita visitado = espacio.getDescubiertas();
+        int[] padre = espacio.getPadres();
+
+        int origen = mundo.indice(x[i], y[i]);
+        cola.agregar(origen);
+        visitado.marcar(origen);
+        padre[origen] = -1;
+
+        int expandidos = 0;
+        int resultado = SIN_CAMINO;
+        while (!cola.estaVacia()) {
+            int actual = cola.sacar();
+            expandidos++;
+            if (actual == destino) {
+                resultado = reconstruirPrimerPaso(padre, origen, destino);
+                break;
+            }
+            int cx = mundo.x(actual);
+            int cy = mundo.y(actual);
+            for (int dir : direccionesOrdenadas) {
+                int nx = cx + Mundo.DX[dir];
+                int ny = cy + Mundo.DY[dir];
+
+                if (!mundo.contiene(nx, ny)) {
+                    continue;
+                }
+                int vecino = mundo.indice(nx, ny);
+                if (visitado.estaMarcada(vecino)) {
+                    continue;
+                }
+                if (vista.hayMuro(nx, ny)) {
+                    continue;
+                }
+                if (vista.hayTelefono(nx, ny)) {
+                    continue;
+                }
+                if (hayOtroAgente(i, vista, nx, ny) && vecino != destino) {
+                    continue;
+                }
+                visitado.marcar(vecino);
+                padre[vecino] = actual;
+                cola.agregar(vecino);
+            }
+        }
+        if (metricas != null) {
+            metricas.sumarNodosBfsAgentes(expandidos);
+        }
+        return resultado;
+    }
+
+    /**
+     * HPA* hacia Neo; el primer tramo se refina esquivando teléfonos y otros agentes
+     */
+    private int buscarJerarquico(int i, InstantaneaMundo vista) {
+        int destino = vista.celda(0);
+        if (!alcanzable(i, destino)) {
+            return SIN_CAMINO;
+        }
+        ConsultaJerarquica consulta = consultas.get();
+        CostoJerarquico costo = costos.get();
+        costo.preparar(i, vista, destino);
+        int siguientePaso = mapaJerarquico.siguientePaso(mundo.indice(x[i], y[i]), costo.objetivo, 1, costo, consulta);
+        if (metricas != null) {
+            metricas.sumarNodosBfsAgentes(consulta.getNodosExpandidos());
+        }
+        return siguientePaso;
+    }
+
+    /**
+     * Costo de paso de la búsqueda jerárquica de un agente. Hay uno por hilo y se
+     * reapunta a cada agente, así la búsqueda no crea una lambda ni un arreglo por llamada
+     */
+    private final class CostoJerarquico implements IntBinaryOperator {
+        private final int[] objetivo = new int[1];
+        private int agente;
+        private InstantaneaMundo vista;
+
+        void preparar(int agente, InstantaneaMundo vista, int destino) {
+            this.agente = agente;
+            this.vista = vista;
+            objetivo[0] = destino;
+        }
+
+        @Override
+        public int applyAsInt(int cx, int cy) {
+            if (vista.hayMuro(cx, cy) || vista.hayTelefono(cx, cy)) {
+                return Integer.MAX_VALUE;
+            }
+            if (hayOtroAgente(agente, vista, cx, cy) && mundo.indice(cx, cy) != objetivo[0]) {
+                return Integer.MAX_VALUE;
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * Elige el siguiente paso bajando por el campo de persecución compartido.
+     * Entre las celdas que acercan a Neo se respeta el orden de direcciones preferidas
+     * para que los agentes se repartan alrededor de Neo.
+     */
+    private int descenderCampo(int i, InstantaneaMundo vista) {
+        int distanciaActual = campo.distancia(x[i], y[i]);
+        if (distanciaActual <= 0) {
+            return SIN_CAMINO;
+        }
+
+        int neoX = vista.x(0);
+        int neoY = vista.y(0);
+        for (int dir : ORDEN_DIRECCIONES[calcularDireccionPreferida(i, neoX, neoY)]) {
+            int nx = x[i] + Mundo.DX[dir];
+            int ny = y[i] + Mundo.DY[dir];
+            if (campo.distancia(nx, ny) != distanciaActual - 1) {
+                continue;
+            }
+            if (hayOtroAgente(i, vista, nx, ny) && !(nx == neoX && ny == neoY)) {
+                continue;
+            }
+            return mundo.indice(nx, ny);
+        }
+        return SIN_CAMINO;
+    }
+
+    private int calcularDireccionPreferida(int i, int neoX, int neoY) {
+        int miPosicionRelativa;
+
+        if (x[i] < neoX && y[i] < neoY) miPosicionRelativa = 0;
+        else if (x[i] < neoX) miPosicionRelativa = 1;
+        else if (y[i] < neoY) miPosicionRelativa = 2;
+        else miPosicionRelativa = 3;
+
+        return (miPosicionRelativa + ids[i]) % 4;
+    }
+
+    /**
+     * Orden de exploración para cada dirección preferida: la preferida se
+     * intercambia con la primera. Se precalcula para no crear arreglos por búsqueda.
+     */
+    private static int[][] ordenarDirecciones() {
+        int[][] ordenes = new int[4][];
+        for (int preferencia = 0; preferencia < 4; preferencia++) {
+            int[] orden = {0, 1, 2, 3};
+            orden[preferencia] = 0;
+            orden[0] = preferencia;
+            ordenes[preferencia] = orden;
+        }
+        return ordenes;
+    }
+
+    /**
+     * Consulta O(1) por componente antes de buscar: false si los muros lo separan del destino
+     */
+    private boolean alcanzable(int i, int destino) {
+        return componentes == null || componentes.conectadas(mundo.indice(x[i], y[i]), destino);
+    }
+
+    private boolean hayOtroAgente(int i, InstantaneaMundo vista, int cx, int cy) {
+        int agentesEnCelda = vista.agentesEn(cx, cy);
+        // El propio agente también está contado en su celda
+        if (cx == x[i] && cy == y[i] && estaVivo(i)) {
+            agentesEnCelda--;
+        }
+        return agentesEnCelda > 0;
+    }
+
+    private static int reconstruirPrimerPaso(int[] padre, int origen, int destino) {
+        int celda = destino;
+
+        while (padre[celda] != -1) {
+            int anterior = celda;
+            celda = padre[celda];
+
+            if (celda == origen) {
+                return anterior;
+            }
+        }
+
+        return origen;
+    }
+
+    private void registrarEvento(InstantaneaMundo vista, TipoEvento tipo, int id, int ex, int ey) {
+        if (eventos != null && eventos.registra(tipo)) {
+            eventos.publicar(tipo, vista != null ? vista.getTurno() + 1 : 0, id, ex, ey);
+        }
+    }
+}
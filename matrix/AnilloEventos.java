@@ -0,0 +1,85 @@
+package matrix;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Buffer circular acotado y sin bloqueos para eventos codificados en dos long.
+ * Varios hilos pueden escribir (cada uno reclama un lugar con un compareAndSet)
+ * y un único lector lo vacía. Cada lugar lleva un número de secuencia que indica
+ * si está libre para escribir o listo para leer. Si el anillo está lleno el
+ * evento se descarta: quien escribe nunca espera.
+ */
+public class AnilloEventos {
+    private final int mascara;
+    private final long[] datos;
+    private final AtomicLongArray secuencias;
+    private final AtomicLong cabeza;
+    // Solo la modifica el lector
+    private long cola;
+
+    /**
+     * @param capacidad cantidad de eventos; debe ser potencia de dos
+     */
+    public AnilloEventos(int capacidad) {
+        if (Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser potencia de dos: " + capacidad);
+        }
+        this.mascara = capacidad - 1;
+        this.datos = new long[capacidad * 2];
+        this.secuencias = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            secuencias.set(i, i);
+        }
+        this.cabeza = new AtomicLong();
+        this.cola = 0;
+    }
+
+    /**
+     * Agrega un evento; devuelve false si el anillo estaba lleno
+     */
+    public boolean agregar(long clave, long posicion) {
+        long lugar = cabeza.get();
+        while (true) {
+            int i = (int) (lugar & mascara);
+            long secuencia = secuencias.get(i);
+            if (secuencia == lugar) {
+                if (cabeza.compareAndSet(lugar, lugar + 1)) {
+                    datos[2 * i] = clave;
+                    datos[2 * i + 1] = posicion;
+                    // Publica el lugar para el lector después de escribir los datos
+                    secuencias.lazySet(i, lugar + 1);
+                    return true;
+                }
+                lugar = cabeza.get();
+            } else if (secuencia < lugar) {
+                return false;
+            } else {
+                lugar = cabeza.get();
+            }
+        }
+    }
+
+    /**
+     * Copia los eventos listos a partir de la posición dada del destino (dos long por
+     * evento) sin pasar de su capacidad. Devuelve cuántos eventos copió.
+     * Solo debe llamarlo un lector a la vez.
+     */
+    public int vaciarEn(long[] destino, int desde) {
+        int copiados = 0;
+        int posicion = desde * 2;
+        while (posicion + 1 < destino.length) {
+            int i = (int) (cola & mascara);
+            if (secuencias.get(i) != cola + 1) {
+                break;
+            }
+            destino[posicion++] = datos[2 * i];
+            destino[posicion++] = datos[2 * i + 1];
+            // Libera el lugar para la próxima vuelta del anillo
+            secuencias.lazySet(i, cola + mascara + 1);
+            cola++;
+            copiados++;
+        }
+        return copiados;
+    }
+}
@@ -0,0 +1,211 @@
+package matrix;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bitácora asíncrona de eventos del juego (movimientos, conflictos de reserva,
+ * capturas y teléfonos alcanzados).
+ *
+ * Los personajes no imprimen: cada evento se codifica en dos long y se deja en un
+ * anillo sin bloqueos. Cada hilo escribe siempre en el mismo anillo (elegido por su
+ * id), así que entre hilos de plataforma casi no hay competencia. Un hilo de fondo
+ * vacía los anillos, ordena los eventos por turno y fase y los escribe en bloque.
+ * Con NivelEventos.APAGADO publicar un evento es solo una comparación.
+ */
+public class BusEventos {
+    private static final int CAPACIDAD_ANILLO = 1024;
+    private static final long INTERVALO_MS = 20;
+
+    private final NivelEventos nivel;
+    private final AnilloEventos[] anillos;
+    private final AtomicLong descartados;
+    // Espacio del lector, reutilizado entre vaciados
+    private long[] leidos;
+    private long[] orden;
+    private final StringBuilder texto;
+    private volatile boolean cerrado;
+    private Thread escritor;
+
+    public BusEventos(NivelEventos nivel) {
+        this.nivel = nivel;
+        int cantidad = nivel == NivelEventos.APAGADO ? 0
+                : Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2);
+        this.anillos = new AnilloEventos[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            anillos[i] = new AnilloEventos(CAPACIDAD_ANILLO);
+        }
+        this.descartados = new AtomicLong();
+        this.leidos = new long[2 * CAPACIDAD_ANILLO];
+        this.orden = new long[CAPACIDAD_ANILLO];
+        this.texto = new StringBuilder();
+    }
+
+    public NivelEventos getNivel() {
+        return nivel;
+    }
+
+    /**
+     * Indica si el nivel configurado registra este tipo de evento
+     */
+    public boolean registra(TipoEvento tipo) {
+        return nivel.compareTo(tipo.getNivel()) >= 0;
+    }
+
+    /**
+     * Registra un evento sin bloquear; si el anillo del hilo está lleno el evento se descarta
+     *
+     * @param personaje 0 para Neo o el id del agente
+     */
+    public void publicar(TipoEvento tipo, int turno, int personaje, int x, int y) {
+        if (!registra(tipo)) {
+            return;
+        }
+        // La clave ordena por turno, luego por fase del turno y luego por personaje
+        long clave = ((long) turno << 32) | ((long) tipo.ordinal() << 24) | (personaje & 0xFFFFFFL);
+        long posicion = ((long) x << 32) | (y & 0xFFFFFFFFL);
+        AnilloEventos anillo = anillos[(int) Thread.currentThread().threadId() & (anillos.length - 1)];
+        if (!anillo.agregar(clave, posicion)) {
+            descartados.incrementAndGet();
+        }
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    /**
+     * Arranca el hilo que escribe los eventos en segundo plano
+     */
+    public void iniciar() {
+        if (nivel == NivelEventos.APAGADO) {
+            return;
+        }
+        cerrado = false;
+        escritor = new Thread(() -> {
+            try {
+                while (!cerrado) {
+                    Thread.sleep(INTERVALO_MS);
+                    vaciar();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "eventos-matrix");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Escribe lo que quede pendiente y detiene el hilo escritor
+     */
+    public void cerrar() throws InterruptedException {
+        cerrado = true;
+        if (escritor != null) {
+            escritor.join();
+            escritor = null;
+        }
+        vaciar();
+        if (descartados.get() > 0) {
+            System.out.println("(Se descartaron " + descartados.get() + " eventos por falta de espacio)");
+        }
+    }
+
+    /**
+     * Vacía todos los anillos y escribe sus eventos de una sola vez.
+     * También lo llama el renderizador antes de dibujar un turno, para que los
+     * mensajes salgan antes que el tablero que resumen.
+     */
+    public synchronized void vaciar() {
+        if (anillos.length == 0) {
+            return;
+        }
+        int cantidad = 0;
+        for (AnilloEventos anillo : anillos) {
+            // Lugar para un anillo lleno; lo que llegue mientras tanto sale en el próximo vaciado
+            if (2 * (cantidad + CAPACIDAD_ANILLO) > leidos.length) {
+                leidos = Arrays.copyOf(leidos, 2 * (cantidad + CAPACIDAD_ANILLO));
+            }
+            cantidad += anillo.vaciarEn(leidos, cantidad);
+        }
+        if (cantidad == 0) {
+            return;
+        }
+
+        ordenar(cantidad);
+        texto.setLength(0);
+        long mascaraIndice = (1L << bitsIndice(cantidad)) - 1;
+        for (int k = 0; k < cantidad; k++) {
+            int i = (int) (orden[k] & mascaraIndice);
+            formatear(leidos[2 * i], leidos[2 * i + 1]);
+        }
+        PrintStream salida = System.out;
+        byte[] bytes = texto.toString().getBytes(salida.charset());
+        salida.write(bytes, 0, bytes.length);
+        salida.flush();
+    }
+
+    /**
+     * Deja en orden los primeros eventos leídos ordenados por clave, empaquetando la clave
+     * y el índice en un long como AlmacenAgentes.ordenarPorId: turno relativo al menor del
+     * lote en los bits altos, luego fase y personaje, e índice en los bits bajos.
+     */
+    private void ordenar(int cantidad) {
+        if (orden.length < cantidad) {
+            orden = new long[leidos.length / 2];
+        }
+        int bits = bitsIndice(cantidad);
+        int primerTurno = Integer.MAX_VALUE;
+        for (int i = 0; i < cantidad; i++) {
+            primerTurno = Math.min(primerTurno, (int) (leidos[2 * i] >>> 32));
+        }
+        // El bit de signo queda libre. Un lote abarca pocos turnos; si no entrara, los turnos más lejanos comparten el último valor
+        long maximoTurno = (1L << (31 - bits)) - 1;
+        for (int i = 0; i < cantidad; i++) {
+            long clave = leidos[2 * i];
+            long turno = Math.min((clave >>> 32) - primerTurno, maximoTurno);
+            orden[i] = (turno << (32 + bits)) | ((clave & 0xFFFFFFFFL) << bits) | i;
+        }
+        Arrays.sort(orden, 0, cantidad);
+    }
+
+    private static int bitsIndice(int cantidad) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(cantidad - 1));
+    }
+
+    private void formatear(long clave, long posicion) {
+        TipoEvento tipo = TipoEvento.values()[(int) (clave >>> 24) & 0xFF];
+        int personaje = (int) (clave & 0xFFFFFF);
+        String nombre = personaje == 0 ? "Neo" : "Agente-" + personaje;
+        int x = (int) (posicion >> 32);
+        int y = (int) posicion;
+
+        switch (tipo) {
+            case CONFLICTO_RESERVA:
+                texto.append("··· ").append(nombre).append(" no pudo reservar (");
+                break;
+            case MOVIMIENTO:
+                texto.append(">>> ").append(nombre).append(" se movió a (");
+                break;
+            case CAPTURA:
+                texto.append('¡').append(nombre).append(" capturó a Neo en (");
+                break;
+            default:
+                texto.append('¡').append(nombre).append(" llegó al teléfono en (");
+                break;
+        }
+        texto.append(x).append(", ").append(y).append(')');
+        switch (tipo) {
+            case CAPTURA:
+                texto.append('!');
+                break;
+            case TELEFONO_ALCANZADO:
+                texto.append(" y escapó de Matrix!");
+                break;
+            default:
+                break;
+        }
+        texto.append('\n');
+    }
+}
@@ -0,0 +1,120 @@
+package matrix;
+
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Costo de entrar a cada celda según los muros y la cercanía de los agentes,
+ * calculado una vez por turno para que Neo lo lea con un solo acceso en lugar
+ * de revisar el vecindario de cada celda que relaja.
+ *
+ * El tablero se reparte en bandas de filas que se calculan en paralelo; cada banda
+ * escribe solo sus filas, así que no hay carreras. Entre turnos no se rehace todo:
+ * cada banda devuelve a su valor base las celdas que marcaron los agentes del turno
+ * anterior y marca las de los agentes actuales. Si cambian los muros se rehace desde cero.
+ */
+public class CampoAmenaza {
+    private static final int INFRANQUEABLE = NucleoAmenaza.INFRANQUEABLE;
+    // Menos filas por banda no compensa repartir el trabajo
+    private static final int FILAS_MINIMAS_BANDA = 32;
+
+    private final Mundo mundo;
+    private final NucleoAmenaza nucleo;
+    private final int[] costos;
+    private final int bandas;
+    // Instantánea con la que se calcularon los costos; null antes del primer cálculo
+    private InstantaneaMundo anterior;
+
+    public CampoAmenaza(Mundo mundo, NucleoAmenaza nucleo) {
+        this(mundo, nucleo, Math.min((mundo.getAlto() + FILAS_MINIMAS_BANDA - 1) / FILAS_MINIMAS_BANDA,
+                ForkJoinPool.getCommonPoolParallelism() * 4));
+    }
+
+    /**
+     * Con una cantidad de bandas fija, para probar el reparto sin depender de los procesadores
+     */
+    CampoAmenaza(Mundo mundo, NucleoAmenaza nucleo, int bandas) {
+        this.mundo = mundo;
+        this.nucleo = nucleo;
+        this.costos = mundo.nuevaCapaEnteros();
+        this.bandas = Math.max(1, Math.min(bandas, mundo.getAlto()));
+    }
+
+    public NucleoAmenaza getNucleo() {
+        return nucleo;
+    }
+
+    /**
+     * Si los costos se calcularon con esta instantánea; solo valen para ella
+     */
+    public boolean estaCalculadoPara(InstantaneaMundo vista) {
+        return vista == anterior;
+    }
+
+    /**
+     * Costo de entrar a la celda, o NucleoAmenaza.INFRANQUEABLE
+     */
+    public int costo(int celda) {
+        return costos[celda];
+    }
+
+    /**
+     * Recalcula los costos con la instantánea del turno.
+     * Debe llamarse una vez por turno mientras nadie lo está leyendo (al cerrar una fase del turno).
+     */
+    public void calcular(InstantaneaMundo vista) {
+        InstantaneaMundo previa = anterior != null && anterior.getVersionMuros() == vista.getVersionMuros()
+                ? anterior : null;
+        if (bandas == 1) {
+            calcularBanda(0, vista, previa);
+        } else {
+            IntStream.range(0, bandas).parallel().forEach(banda -> calcularBanda(banda, vista, previa));
+        }
+        anterior = vista;
+    }
+
+    private void calcularBanda(int banda, InstantaneaMundo vista, InstantaneaMundo previa) {
+        int desde = (int) ((long) banda * mundo.getAlto() / bandas);
+        int hasta = (int) ((long) (banda + 1) * mundo.getAlto() / bandas);
+        if (previa == null) {
+            // Sin turno anterior válido: todas las filas de la banda vuelven a su valor base
+            for (int celda = mundo.indice(0, desde); celda < mundo.indice(0, hasta); celda++) {
+                costos[celda] = costoBase(vista, celda);
+            }
+        } else {
+            recorrerAgentes(previa, desde, hasta, vista, false);
+        }
+        recorrerAgentes(vista, desde, hasta, vista, true);
+    }
+
+    /**
+     * Recorre el vecindario de cada agente vivo de la instantánea que cae en las filas
+     * [desde, hasta): con marcar suma su penalización y sin marcar devuelve la celda a su valor base
+     */
+    private void recorrerAgentes(InstantaneaMundo agentes, int desde, int hasta, InstantaneaMundo vista, boolean marcar) {
+        int radio = nucleo.getRadio();
+        for (int ranura = 1; ranura < agentes.getCantidadPersonajes(); ranura++) {
+            if (!agentes.estaVivo(ranura)) {
+                continue;
+            }
+            int ay = agentes.y(ranura);
+            if (ay + radio < desde || ay - radio >= hasta) {
+                continue;
+            }
+            int ax = agentes.x(ranura);
+            for (int k = 0; k < nucleo.getCeldas(); k++) {
+                int x = ax + nucleo.dx(k);
+                int y = ay + nucleo.dy(k);
+                if (y < desde || y >= hasta || !mundo.contiene(x, y)) {
+                    continue;
+                }
+                int celda = mundo.indice(x, y);
+                costos[celda] = marcar ? NucleoAmenaza.sumar(costos[celda], nucleo.peso(k)) : costoBase(vista, celda);
+            }
+        }
+    }
+
+    private int costoBase(InstantaneaMundo vista, int celda) {
+        return vista.hayMuro(mundo.x(celda), mundo.y(celda)) ? INFRANQUEABLE : 1;
+    }
+}
@@ -0,0 +1,94 @@
+package matrix;
+
+/**
+ * Campo de distancias hacia Neo compartido por todos los agentes.
+ * Una sola búsqueda BFS inversa desde Neo por turno reemplaza la BFS individual
+ * de cada agente: luego cada agente elige su paso en O(1) bajando por el campo.
+ *
+ * Los muros y los teléfonos sin usar no se atraviesan. Las celdas con agentes
+ * reciben distancia pero no se expanden, igual que en bfsConCoordinacion donde
+ * los demás agentes son obstáculos para el que busca.
+ */
+public class CampoPersecucion {
+    public static final int INALCANZABLE = -1;
+
+    private final Mundo mundo;
+    private final int[] distancias;
+    // Marca de generación por celda: una distancia solo es válida si su marca es la del turno actual
+    private final int[] marcas;
+    private final int[] cola;
+    private int generacion;
+    private int nodosExpandidos;
+
+    public CampoPersecucion(Mundo mundo) {
+        this.mundo = mundo;
+        this.distancias = mundo.nuevaCapaEnteros();
+        this.marcas = mundo.nuevaCapaEnteros();
+        this.cola = mundo.nuevaCapaEnteros();
+        this.generacion = 0;
+    }
+
+    /**
+     * Recalcula el campo desde la posición de Neo en la instantánea del turno.
+     * Debe llamarse una vez por turno mientras nadie lo está leyendo (al cerrar una fase del turno).
+     */
+    public void calcular(InstantaneaMundo vista) {
+        generacion++;
+        int neoX = vista.x(0);
+        int neoY = vista.y(0);
+        int inicio = 0;
+        int fin = 0;
+
+        int origen = mundo.indice(neoX, neoY);
+        marcas[origen] = generacion;
+        distancias[origen] = 0;
+        cola[fin++] = origen;
+
+        while (inicio < fin) {
+            int celda = cola[inicio++];
+            int x = mundo.x(celda);
+            int y = mundo.y(celda);
+            int siguiente = distancias[celda] + 1;
+
+            for (int i = 0; i < 4; i++) {
+                int nx = x + Mundo.DX[i];
+                int ny = y + Mundo.DY[i];
+                if (!mundo.contiene(nx, ny)) {
+                    continue;
+                }
+                int vecino = mundo.indice(nx, ny);
+                if (marcas[vecino] == generacion) {
+                    continue;
+                }
+                if (vista.hayMuro(nx, ny) || vista.hayTelefono(nx, ny)) {
+                    continue;
+                }
+                marcas[vecino] = generacion;
+                distancias[vecino] = siguiente;
+                // Un agente alcanza su celda pero bloquea el paso a los demás
+                if (vista.agentesEn(nx, ny) == 0) {
+                    cola[fin++] = vecino;
+                }
+            }
+        }
+        nodosExpandidos = fin;
+    }
+
+    /**
+     * Celdas expandidas por la BFS del último cálculo
+     */
+    public int getNodosExpandidos() {
+        return nodosExpandidos;
+    }
+
+    /**
+     * Distancia en pasos desde (x, y) hasta Neo, o INALCANZABLE
+     */
+    public int distancia(int x, int y) {
+        if (generacion == 0 || !mundo.contiene(x, y)) {
+            return INALCANZABLE;
+        }
+        int celda = mundo.indice(x, y);
+        return marcas[celda] == generacion ? distancias[celda] : INALCANZABLE;
+    }
+}
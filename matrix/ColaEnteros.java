@@ -0,0 +1,65 @@
+package matrix;
+
+/**
+ * Cola FIFO de enteros sobre un arreglo circular.
+ * Se reutiliza entre búsquedas para no crear objetos en cada turno.
+ */
+public class ColaEnteros {
+    private int[] elementos;
+    private int cabeza;
+    private int tamanio;
+
+    public ColaEnteros(int capacidadInicial) {
+        this.elementos = new int[Math.max(1, capacidadInicial)];
+    }
+
+    public void agregar(int valor) {
+        if (tamanio == elementos.length) {
+            crecer();
+        }
+        int cola = cabeza + tamanio;
+        if (cola >= elementos.length) {
+            cola -= elementos.length;
+        }
+        elementos[cola] = valor;
+        tamanio++;
+    }
+
+    public int sacar() {
+        if (tamanio == 0) {
+            throw new IllegalStateException("La cola está vacía");
+        }
+        int valor = elementos[cabeza];
+        cabeza++;
+        if (cabeza == elementos.length) {
+            cabeza = 0;
+        }
+        tamanio--;
+        return valor;
+    }
+
+    public boolean estaVacia() {
+        return tamanio == 0;
+    }
+
+    public int tamanio() {
+        return tamanio;
+    }
+
+    public void limpiar() {
+        cabeza = 0;
+        tamanio = 0;
+    }
+
+    /**
+     * Duplica la capacidad conservando el orden (solo ocurre mientras la cola se calienta)
+     */
+    private void crecer() {
+        int[] nuevos = new int[elementos.length * 2];
+        int primerTramo = elementos.length - cabeza;
+        System.arraycopy(elementos, cabeza, nuevos, 0, primerTramo);
+        System.arraycopy(elementos, 0, nuevos, primerTramo, cabeza);
+        elementos = nuevos;
+        cabeza = 0;
+    }
+}
@@ -0,0 +1,100 @@
+package matrix;
+
+/**
+ * Componentes conexas de las celdas libres según los muros, calculadas una vez
+ * con union-find. Si el destino está en otra componente ninguna búsqueda lo puede
+ * alcanzar, así que los buscadores lo preguntan en O(1) antes de recorrer el tablero.
+ *
+ * Solo cuenta los muros: los agentes y los teléfonos pueden cortar el camino
+ * durante la partida, así que estar en la misma componente no garantiza llegar.
+ */
+public class ComponentesConexas {
+    public static final int MURO = -1;
+
+    private final Mundo mundo;
+    // Representante de la componente de cada celda libre (MURO en las celdas con muro)
+    private final int[] raices;
+    private final int versionMuros;
+    private int cantidad;
+
+    public ComponentesConexas(IndiceOcupacion ocupacion) {
+        this.mundo = ocupacion.getMundo();
+        this.raices = mundo.nuevaCapaEnteros();
+        this.versionMuros = ocupacion.getVersionMuros();
+
+        for (int celda = 0; celda < raices.length; celda++) {
+            raices[celda] = ocupacion.hayMuro(mundo.x(celda), mundo.y(celda)) ? MURO : celda;
+        }
+        // Basta unir cada celda con su vecina del este y la del sur
+        int ancho = mundo.getAncho();
+        for (int celda = 0; celda < raices.length; celda++) {
+            if (raices[celda] == MURO) {
+                continue;
+            }
+            if (mundo.x(celda) + 1 < ancho && raices[celda + 1] != MURO) {
+                unir(celda, celda + 1);
+            }
+            if (celda + ancho < raices.length && raices[celda + ancho] != MURO) {
+                unir(celda, celda + ancho);
+            }
+        }
+        // Compresión completa: después cada consulta es una sola lectura
+        for (int celda = 0; celda < raices.length; celda++) {
+            if (raices[celda] != MURO) {
+                raices[celda] = buscar(celda);
+                if (raices[celda] == celda) {
+                    cantidad++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Representante de la componente de la celda, o MURO
+     */
+    public int componente(int celda) {
+        return raices[celda];
+    }
+
+    public boolean conectadas(int a, int b) {
+        return raices[a] != MURO && raices[a] == raices[b];
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Versión de los muros con la que se calcularon; si cambió hay que volver a calcularlas
+     */
+    public int getVersionMuros() {
+        return versionMuros;
+    }
+
+    public Mundo getMundo() {
+        return mundo;
+    }
+
+    private int buscar(int celda) {
+        while (raices[celda] != celda) {
+            // Compresión por mitades: cada celda pasa a apuntar a su abuelo
+            raices[celda] = raices[raices[celda]];
+            celda = raices[celda];
+        }
+        return celda;
+    }
+
+    private void unir(int a, int b) {
+        int raizA = buscar(a);
+        int raizB = buscar(b);
+        if (raizA == raizB) {
+            return;
+        }
+        // El menor índice queda como raíz, así el resultado no depende del orden de las uniones
+        if (raizA < raizB) {
+            raices[raizB] = raizA;
+        } else {
+            raices[raizA] = raizB;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package matrix;
+
+import java.util.*;
+
+/**
+ * Opciones que cambian cómo se juega una partida una vez generado el mundo:
+ * estrategia de Neo, modo de ejecución, núcleo de amenaza, límite de turnos y
+ * búsqueda de los agentes. Se guardan en los puntos de control para que una
+ * partida reanudada siga con las mismas reglas con que empezó.
+ */
+public final class ConfiguracionPartida {
+    private final EstrategiaNeo estrategiaNeo;
+    private final ModoEjecucion modoEjecucion;
+    private final NucleoAmenaza nucleoAmenaza;
+    private final int maxTurnos;
+    private final boolean usarCampoPersecucion;
+    private final boolean agentesJerarquicos;
+    private final boolean resolucionDeterminista;
+
+    /**
+     * @param maxTurnos 0 = sin límite
+     */
+    public ConfiguracionPartida(EstrategiaNeo estrategiaNeo, ModoEjecucion modoEjecucion, NucleoAmenaza nucleoAmenaza,
+                                int maxTurnos, boolean usarCampoPersecucion, boolean agentesJerarquicos,
+                                boolean resolucionDeterminista) {
+        this.estrategiaNeo = estrategiaNeo;
+        this.modoEjecucion = modoEjecucion;
+        this.nucleoAmenaza = nucleoAmenaza;
+        this.maxTurnos = maxTurnos;
+        this.usarCampoPersecucion = usarCampoPersecucion;
+        this.agentesJerarquicos = agentesJerarquicos;
+        this.resolucionDeterminista = resolucionDeterminista;
+    }
+
+    public EstrategiaNeo getEstrategiaNeo() {
+        return estrategiaNeo;
+    }
+
+    public ModoEjecucion getModoEjecucion() {
+        return modoEjecucion;
+    }
+
+    public NucleoAmenaza getNucleoAmenaza() {
+        return nucleoAmenaza;
+    }
+
+    public int getMaxTurnos() {
+        return maxTurnos;
+    }
+
+    public boolean isUsarCampoPersecucion() {
+        return usarCampoPersecucion;
+    }
+
+    public boolean isAgentesJerarquicos() {
+        return agentesJerarquicos;
+    }
+
+    public boolean isResolucionDeterminista() {
+        return resolucionDeterminista;
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        if (!(otro instanceof ConfiguracionPartida)) {
+            return false;
+        }
+        ConfiguracionPartida c = (ConfiguracionPartida) otro;
+        return estrategiaNeo == c.estrategiaNeo && modoEjecucion == c.modoEjecucion
+                && nucleoAmenaza.equals(c.nucleoAmenaza) && maxTurnos == c.maxTurnos
+                && usarCampoPersecucion == c.usarCampoPersecucion && agentesJerarquicos == c.agentesJerarquicos
+                && resolucionDeterminista == c.resolucionDeterminista;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(estrategiaNeo, modoEjecucion, nucleoAmenaza, maxTurnos,
+                usarCampoPersecucion, agentesJerarquicos, resolucionDeterminista);
+    }
+
+    @Override
+    public String toString() {
+        return "estrategia " + estrategiaNeo + ", modo " + modoEjecucion + ", amenaza " + nucleoAmenaza
+                + ", máximo de turnos " + maxTurnos + (usarCampoPersecucion ? "" : ", BFS por agente")
+                + (agentesJerarquicos ? ", agentes jerárquicos" : "")
+                + (resolucionDeterminista ? ", determinista" : "");
+    }
+}
@@ -0,0 +1,100 @@
+package matrix;
+
+import java.util.*;
+
+/**
+ * Memoria de trabajo de una consulta a MapaJerarquico. El mapa se comparte entre
+ * todos los buscadores, así que cada hilo (o cada Neo) usa su propia consulta.
+ * Reutiliza el EspacioBusqueda que el buscador ya tiene para sus búsquedas planas,
+ * y los arreglos solo crecen, de modo que un turno estable no reserva memoria.
+ */
+public class ConsultaJerarquica {
+    private final EspacioBusqueda espacio;
+    // Distancia del origen a cada entrada de su cluster
+    private int[] distanciasOrigen;
+    // Distancia directa del origen a cada objetivo de su mismo cluster
+    private int[] directas;
+    // Distancia de cada objetivo a cada entrada de su cluster
+    private int[][] distanciasObjetivo;
+    // BFS dentro de un cluster, con índices locales
+    private int[] plantillaLocal;
+    private int[] distanciasLocales;
+    private int[] colaLocal;
+    private int nodosExpandidos;
+
+    public ConsultaJerarquica(EspacioBusqueda espacio) {
+        this.espacio = espacio;
+        this.distanciasOrigen = new int[16];
+        this.directas = new int[1];
+        this.distanciasObjetivo = new int[1][16];
+        this.plantillaLocal = new int[0];
+        this.distanciasLocales = new int[0];
+        this.colaLocal = new int[0];
+    }
+
+    public EspacioBusqueda getEspacio() {
+        return espacio;
+    }
+
+    /**
+     * Nodos expandidos en la última consulta, sumando las búsquedas locales y la abstracta
+     */
+    public int getNodosExpandidos() {
+        return nodosExpandidos;
+    }
+
+    void reiniciar() {
+        nodosExpandidos = 0;
+    }
+
+    void sumarNodos(int nodos) {
+        nodosExpandidos += nodos;
+    }
+
+    int[] plantillaLocal(int celdas) {
+        if (plantillaLocal.length < celdas) {
+            plantillaLocal = new int[celdas];
+        }
+        return plantillaLocal;
+    }
+
+    int[] distanciasLocales(int celdas) {
+        if (distanciasLocales.length < celdas) {
+            distanciasLocales = new int[celdas];
+        }
+        return distanciasLocales;
+    }
+
+    int[] colaLocal(int celdas) {
+        if (colaLocal.length < celdas) {
+            colaLocal = new int[celdas];
+        }
+        return colaLocal;
+    }
+
+    int[] distanciasOrigen(int entradas) {
+        if (distanciasOrigen.length < entradas) {
+            distanciasOrigen = new int[Math.max(entradas, distanciasOrigen.length * 2)];
+        }
+        return distanciasOrigen;
+    }
+
+    int[] directas(int objetivos) {
+        if (directas.length < objetivos) {
+            directas = new int[Math.max(objetivos, directas.length * 2)];
+        }
+        return directas;
+    }
+
+    int[] distanciasObjetivo(int objetivo, int entradas) {
+        if (distanciasObjetivo.length <= objetivo) {
+            distanciasObjetivo = Arrays.copyOf(distanciasObjetivo, Math.max(objetivo + 1, distanciasObjetivo.length * 2));
+        }
+        int[] distancias = distanciasObjetivo[objetivo];
+        if (distancias == null || distancias.length < entradas) {
+            distancias = new int[Math.max(entradas, 16)];
+            distanciasObjetivo[objetivo] = distancias;
+        }
+        return distancias;
+    }
+}
@@ -0,0 +1,204 @@
+package matrix;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Diario binario de una partida escrito a través de un archivo mapeado en memoria.
+ * Permite reproducirla después con ReproductorPartida sin volver a correr los hilos.
+ *
+ * Formato (enteros big-endian):
+ * <pre>
+ * cabecera: MAGIA, VERSION, ancho, alto, ranuras, intervaloClaves, turnoInicial,
+ *           cantidadMuros, celdas..., cantidadTelefonos sin usar, celdas..., celda inicial por ranura
+ * registros de 8 bytes: (tipo &lt;&lt; 24 | ranura, valor)
+ * índice: cantidadClaves, (turno, desplazamiento long)...
+ * cola: desplazamiento long del índice
+ * </pre>
+ * Cada INTERVALO_CLAVES turnos se escribe un fotograma clave con la celda de
+ * todas las ranuras, para que el reproductor pueda saltar a cualquier turno.
+ */
+public class DiarioPartida {
+    static final int MAGIA = 0x4D54584A; // "MTXJ"
+    static final int VERSION = 1;
+    static final int BYTES_REGISTRO = 8;
+    static final int INTERVALO_CLAVES = 64;
+    // La ranura ocupa los 24 bits bajos de la primera palabra del registro
+    static final int MAX_RANURAS = 1 << 24;
+
+    // Tipos de registro
+    static final int TURNO = 1;
+    static final int MOVIMIENTO = 2;
+    static final int CLAVE = 3;
+    static final int POSICION = 4;
+    static final int CAPTURA = 5;
+    static final int TELEFONO = 6;
+    static final int FIN = 7;
+
+    // El archivo crece de a regiones; cada región nueva se mapea donde terminó la anterior
+    private static final int TAMANIO_REGION = 1 << 24;
+
+    private final FileChannel canal;
+    private final int intervaloClaves;
+    private final int tamanioRegion;
+    private MappedByteBuffer region;
+    private long inicioRegion;
+    // Fotogramas clave: turno y desplazamiento en el archivo
+    private int[] turnosClave;
+    private long[] desplazamientosClave;
+    private int cantidadClaves;
+    private boolean cerrado;
+
+    public DiarioPartida(Path archivo) throws IOException {
+        this(archivo, INTERVALO_CLAVES);
+    }
+
+    public DiarioPartida(Path archivo, int intervaloClaves) throws IOException {
+        this(archivo, intervaloClaves, TAMANIO_REGION);
+    }
+
+    /**
+     * Con regiones más chicas, para probar los cortes entre regiones sin escribir gigas
+     */
+    DiarioPartida(Path archivo, int intervaloClaves, int tamanioRegion) throws IOException {
+        if (intervaloClaves <= 0) {
+            throw new IllegalArgumentException("El intervalo de fotogramas clave debe ser positivo: " + intervaloClaves);
+        }
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.intervaloClaves = intervaloClaves;
+        this.tamanioRegion = tamanioRegion;
+        this.turnosClave = new int[16];
+        this.desplazamientosClave = new long[16];
+        this.region = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanioRegion);
+        this.inicioRegion = 0;
+    }
+
+    /**
+     * Escribe la cabecera con el mundo inicial: muros, teléfonos sin usar y la celda de cada ranura.
+     * El turno inicial no es 0 cuando la partida se reanudó desde un punto de control.
+     */
+    public void comenzar(Mundo mundo, int turnoInicial, List<Muro> muros, List<Telefono> telefonos,
+                         PosicionesTurno posiciones) {
+        int ranuras = posiciones.getRanuras();
+        if (ranuras > MAX_RANURAS) {
+            throw new IllegalArgumentException("Demasiados personajes para el diario: " + ranuras);
+        }
+        int libres = 0;
+        for (Telefono tel : telefonos) {
+            if (!tel.isUsado()) {
+                libres++;
+            }
+        }
+        asegurar(4 * (10 + muros.size() + libres + ranuras));
+        region.putInt(MAGIA).putInt(VERSION);
+        region.putInt(mundo.getAncho()).putInt(mundo.getAlto());
+        region.putInt(ranuras).putInt(intervaloClaves).putInt(turnoInicial);
+        region.putInt(muros.size());
+        for (Muro muro : muros) {
+            region.putInt(mundo.indice(muro.getPosX(), muro.getPosY()));
+        }
+        region.putInt(libres);
+        for (Telefono tel : telefonos) {
+            if (!tel.isUsado()) {
+                region.putInt(mundo.indice(tel.getPosX(), tel.getPosY()));
+            }
+        }
+        for (int ranura = 0; ranura < ranuras; ranura++) {
+            region.putInt(posiciones.celda(ranura));
+        }
+    }
+
+    /**
+     * Marca el comienzo de los registros de un turno
+     */
+    public void registrarTurno(int turno) {
+        registrar(TURNO, 0, turno);
+    }
+
+    public void registrarMovimiento(int ranura, int celda) {
+        registrar(MOVIMIENTO, ranura, celda);
+    }
+
+    public void registrarCaptura(int ranura, int celda) {
+        registrar(CAPTURA, ranura, celda);
+    }
+
+    public void registrarTelefono(int celda) {
+        registrar(TELEFONO, 0, celda);
+    }
+
+    /**
+     * Si al turno le toca, escribe un fotograma clave con las posiciones ya publicadas
+     */
+    public void cerrarTurno(int turno, PosicionesTurno posiciones) {
+        if (turno % intervaloClaves != 0) {
+            return;
+        }
+        if (cantidadClaves == turnosClave.length) {
+            turnosClave = Arrays.copyOf(turnosClave, cantidadClaves * 2);
+            desplazamientosClave = Arrays.copyOf(desplazamientosClave, cantidadClaves * 2);
+        }
+        turnosClave[cantidadClaves] = turno;
+        desplazamientosClave[cantidadClaves] = desplazamiento();
+        cantidadClaves++;
+
+        registrar(CLAVE, 0, turno);
+        for (int ranura = 0; ranura < posiciones.getRanuras(); ranura++) {
+            registrar(POSICION, ranura, posiciones.celda(ranura));
+        }
+    }
+
+    /**
+     * Escribe el fin de la partida y el índice de fotogramas clave, y recorta el archivo
+     */
+    public void cerrar(int turnos) throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        registrar(FIN, 0, turnos);
+
+        long desplazamientoIndice = desplazamiento();
+        asegurar(4 + 12 * cantidadClaves + 8);
+        region.putInt(cantidadClaves);
+        for (int i = 0; i < cantidadClaves; i++) {
+            region.putInt(turnosClave[i]).putLong(desplazamientosClave[i]);
+        }
+        region.putLong(desplazamientoIndice);
+
+        long largo = desplazamiento();
+        region.force();
+        region = null;
+        canal.truncate(largo);
+        canal.close();
+    }
+
+    private void registrar(int tipo, int ranura, int valor) {
+        asegurar(BYTES_REGISTRO);
+        region.putInt(tipo << 24 | ranura).putInt(valor);
+    }
+
+    private long desplazamiento() {
+        return inicioRegion + region.position();
+    }
+
+    /**
+     * Mapea una región nueva si en la actual no entran los bytes pedidos
+     */
+    private void asegurar(int bytes) {
+        if (region.remaining() >= bytes) {
+            return;
+        }
+        long desde = desplazamiento();
+        try {
+            region = canal.map(FileChannel.MapMode.READ_WRITE, desde, Math.max(tamanioRegion, bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo ampliar el diario de la partida", e);
+        }
+        inicioRegion = desde;
+    }
+}
@@ -0,0 +1,154 @@
+package matrix;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Escribe los puntos de control de una partida en el formato que lee PuntoControl.
+ * Guarda en la fase de cálculo, con todos los personajes esperando, así que cada
+ * guardado tiene que costar milisegundos aunque el tablero sea enorme:
+ *
+ * - Los muros no cambian durante la partida: su capa de bits se escribe una vez por
+ *   versión de muros y los puntos de control siguientes solo la referencian por nombre
+ *   y CRC. El nombre lleva el CRC, así que nunca se pisa la capa de otra partida.
+ * - El resto (Neo, teléfonos y agentes) se escribe directo desde el estado del juego,
+ *   sin armar listas intermedias, en un búfer que se conserva entre guardados.
+ */
+public class EscritorPuntoControl {
+    private static final int TAMANIO_INICIAL = 1 << 20;
+
+    private ByteBuffer bufer;
+    // Última capa de muros escrita: versión de los muros, archivo y CRC
+    private int versionMuros = -1;
+    private Path archivoMuros;
+    private int crcMuros;
+
+    public EscritorPuntoControl() {
+        this.bufer = ByteBuffer.allocateDirect(TAMANIO_INICIAL);
+    }
+
+    /**
+     * Escribe el punto de control en un archivo temporal y lo renombra, para que
+     * un corte a mitad de la escritura no deje un punto de control a medias.
+     * Debe llamarse con los personajes detenidos entre dos fases.
+     */
+    public void guardar(Path archivo, Mundo mundo, int turno, long semilla, long estadoGenerador,
+                        ConfiguracionPartida configuracion, Neo neo, IndiceOcupacion ocupacion,
+                        List<Telefono> telefonos, AlmacenAgentes agentes) throws IOException {
+        Path capa = asegurarMuros(archivo, mundo, ocupacion);
+        byte[] nombreCapa = capa.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+
+        NucleoAmenaza nucleo = configuracion.getNucleoAmenaza();
+        // Cabecera (5 enteros y 2 long), configuración, Neo (entero y byte), capa de muros y luego cada lista con su cantidad
+        long bytes = 4L * 5 + 8 * 2 + 3 + 4 + 4 + 4L * nucleo.getRadio() + 5 + 2 + nombreCapa.length + 4
+                + 4 + 5L * telefonos.size() + 4 + 9L * agentes.getCantidad() + 4;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Punto de control demasiado grande: " + bytes + " bytes");
+        }
+        ByteBuffer datos = bufer((int) bytes);
+        datos.putInt(PuntoControl.MAGIA).putInt(PuntoControl.VERSION);
+        datos.putInt(mundo.getAncho()).putInt(mundo.getAlto()).putInt(turno);
+        datos.putLong(semilla).putLong(estadoGenerador);
+        datos.put((byte) configuracion.getEstrategiaNeo().ordinal()).put((byte) configuracion.getModoEjecucion().ordinal());
+        datos.put((byte) ((configuracion.isUsarCampoPersecucion() ? PuntoControl.CAMPO_PERSECUCION : 0)
+                | (configuracion.isAgentesJerarquicos() ? PuntoControl.AGENTES_JERARQUICOS : 0)
+                | (configuracion.isResolucionDeterminista() ? PuntoControl.DETERMINISTA : 0)));
+        datos.putInt(configuracion.getMaxTurnos());
+        datos.putInt(nucleo.getRadio());
+        for (int d = 1; d <= nucleo.getRadio(); d++) {
+            datos.putInt(nucleo.getPenalizacion(d));
+        }
+        datos.putInt(mundo.indice(neo.getPosX(), neo.getPosY()))
+                .put((byte) ((neo.isVivo() ? PuntoControl.NEO_VIVO : 0) | (neo.isGano() ? PuntoControl.NEO_GANO : 0)));
+
+        datos.putShort((short) nombreCapa.length).put(nombreCapa).putInt(crcMuros);
+
+        datos.putInt(telefonos.size());
+        for (Telefono tel : telefonos) {
+            datos.putInt(mundo.indice(tel.getPosX(), tel.getPosY())).put((byte) (tel.isUsado() ? 1 : 0));
+        }
+        datos.putInt(agentes.getCantidad());
+        for (int i = 0; i < agentes.getCantidad(); i++) {
+            datos.putInt(agentes.getId(i)).putInt(mundo.indice(agentes.getX(i), agentes.getY(i)))
+                    .put((byte) (agentes.estaVivo(i) ? 1 : 0));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(datos.duplicate().flip());
+        datos.putInt((int) crc.getValue());
+        escribir(archivo, datos);
+    }
+
+    /**
+     * Escribe la capa de muros si cambió desde el último guardado o si este punto de
+     * control va a otro archivo; devuelve la capa que le corresponde
+     */
+    private Path asegurarMuros(Path archivo, Mundo mundo, IndiceOcupacion ocupacion) throws IOException {
+        if (ocupacion.getVersionMuros() == versionMuros && archivoMuros.equals(nombreMuros(archivo, crcMuros))) {
+            return archivoMuros;
+        }
+        long[] muros = ocupacion.copiarMuros();
+        ByteBuffer datos = bufer(TAMANIO_INICIAL);
+        CRC32 crc = new CRC32();
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".muros.tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            datos.putInt(PuntoControl.MAGIA_MUROS).putInt(mundo.getAncho()).putInt(mundo.getAlto()).putInt(muros.length);
+            // La capa puede ocupar decenas de MB: pasa por el búfer de a tramos
+            int desde = 0;
+            while (desde < muros.length) {
+                int cantidad = Math.min(muros.length - desde, datos.remaining() / 8);
+                datos.asLongBuffer().put(muros, desde, cantidad);
+                datos.position(datos.position() + 8 * cantidad);
+                desde += cantidad;
+                datos.flip();
+                crc.update(datos.duplicate());
+                volcar(canal, datos);
+                datos.clear();
+            }
+            datos.putInt((int) crc.getValue()).flip();
+            volcar(canal, datos);
+        }
+        crcMuros = (int) crc.getValue();
+        versionMuros = ocupacion.getVersionMuros();
+        archivoMuros = nombreMuros(archivo, crcMuros);
+        Files.move(temporal, archivoMuros, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return archivoMuros;
+    }
+
+    private static Path nombreMuros(Path archivo, int crc) {
+        return archivo.resolveSibling(archivo.getFileName() + ".muros-" + String.format("%08x", crc));
+    }
+
+    /**
+     * El búfer vacío con lugar para los bytes pedidos; solo crece cuando no alcanza
+     */
+    private ByteBuffer bufer(int bytes) {
+        if (bufer.capacity() < bytes) {
+            bufer = ByteBuffer.allocateDirect(Math.max(bytes, 2 * bufer.capacity()));
+        }
+        bufer.clear();
+        return bufer;
+    }
+
+    private static void escribir(Path archivo, ByteBuffer datos) throws IOException {
+        datos.flip();
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            volcar(canal, datos);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void volcar(FileChannel canal, ByteBuffer datos) throws IOException {
+        while (datos.hasRemaining()) {
+            canal.write(datos);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package matrix;
+
+/**
+ * Memoria de trabajo reutilizable para las búsquedas de caminos de una entidad.
+ * Se crea una vez por entidad y cada búsqueda la reinicia en O(1), de modo que un
+ * turno estable no reserva memoria nueva.
+ */
+public class EspacioBusqueda {
+    private final ColaEnteros cola;
+    private final MonticuloBinario monticulo;
+    private final MarcasVisita descubiertas;
+    private final MarcasVisita cerradas;
+    private final int[] padres;
+    private final int[] distancias;
+
+    public EspacioBusqueda(Mundo mundo) {
+        int celdas = mundo.getCeldas();
+        this.cola = new ColaEnteros(Math.min(celdas, 1024));
+        this.monticulo = new MonticuloBinario(Math.min(celdas, 1024));
+        this.descubiertas = new MarcasVisita(celdas);
+        this.cerradas = new MarcasVisita(celdas);
+        this.padres = mundo.nuevaCapaEnteros();
+        this.distancias = mundo.nuevaCapaEnteros();
+    }
+
+    /**
+     * Prepara el espacio para una nueva búsqueda sin recorrer los arreglos
+     */
+    public void reiniciar() {
+        cola.limpiar();
+        monticulo.limpiar();
+        descubiertas.nuevaBusqueda();
+        cerradas.nuevaBusqueda();
+    }
+
+    // Getters
+    public ColaEnteros getCola() {
+        return cola;
+    }
+
+    public MonticuloBinario getMonticulo() {
+        return monticulo;
+    }
+
+    /**
+     * Celdas que ya tienen padre y distancia válidos en esta búsqueda
+     */
+    public MarcasVisita getDescubiertas() {
+        return descubiertas;
+    }
+
+    /**
+     * Celdas ya expandidas en esta búsqueda
+     */
+    public MarcasVisita getCerradas() {
+        return cerradas;
+    }
+
+    public int[] getPadres() {
+        return padres;
+    }
+
+    public int[] getDistancias() {
+        return distancias;
+    }
+}
@@ -0,0 +1,17 @@
+package matrix;
+
+/**
+ * Estrategias de planificación disponibles para Neo
+ */
+public enum EstrategiaNeo {
+    /** Elige el teléfono más cercano por distancia Manhattan y busca solo hacia él con Dijkstra */
+    TELEFONO_MAS_CERCANO,
+    /** Un solo Dijkstra que termina en el primer teléfono sin usar que alcance */
+    MULTIOBJETIVO,
+    /** Como MULTIOBJETIVO pero con A* guiado por la distancia Manhattan al teléfono más cercano */
+    A_ESTRELLA,
+    /** D* Lite hacia el teléfono más cercano que conserva la búsqueda entre turnos y solo repara lo que cambió */
+    INCREMENTAL,
+    /** HPA*: busca sobre las entradas precalculadas de cada cluster y refina solo el primer tramo */
+    JERARQUICO
+}
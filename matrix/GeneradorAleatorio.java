@@ -0,0 +1,47 @@
+package matrix;
+
+/**
+ * Generador pseudoaleatorio con semilla (SplitMix64).
+ * A diferencia de java.util.Random su estado completo es un único long que se
+ * puede leer y restaurar, así que la misma semilla siempre genera el mismo mundo.
+ */
+public class GeneradorAleatorio {
+    private long estado;
+
+    public GeneradorAleatorio(long semilla) {
+        this.estado = semilla;
+    }
+
+    public long siguienteLong() {
+        long z = (estado += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Entero uniforme en [0, limite)
+     */
+    public int siguienteEntero(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser positivo: " + limite);
+        }
+        int r = (int) (siguienteLong() >>> 33);
+        int m = limite - 1;
+        if ((limite & m) == 0) {
+            return (int) ((limite * (long) r) >> 31);
+        }
+        // Se descartan los valores del último tramo incompleto para no sesgar el resultado
+        for (int u = r; u - (r = u % limite) + m < 0; u = (int) (siguienteLong() >>> 33)) {
+        }
+        return r;
+    }
+
+    public long getEstado() {
+        return estado;
+    }
+
+    public void setEstado(long estado) {
+        this.estado = estado;
+    }
+}
@@ -0,0 +1,90 @@
+package matrix;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Histograma de duraciones en nanosegundos con cubetas por potencia de dos.
+ * Registrar cuesta un par de sumas sobre LongAdder, así que muchos hilos pueden
+ * anotar a la vez sin pelearse por el mismo contador. Los percentiles son
+ * aproximados: se informa el límite superior de la cubeta donde caen.
+ */
+public class HistogramaTiempos {
+    private static final int CUBETAS = 64;
+
+    // La cubeta i cuenta duraciones en [2^i, 2^(i+1)) ns; la 0 también incluye el 0
+    private final LongAdder[] cubetas;
+    private final LongAdder total;
+    private final LongAccumulator maximo;
+
+    public HistogramaTiempos() {
+        this.cubetas = new LongAdder[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas[i] = new LongAdder();
+        }
+        this.total = new LongAdder();
+        this.maximo = new LongAccumulator(Math::max, 0);
+    }
+
+    public void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        cubetas[63 - Long.numberOfLeadingZeros(nanos | 1)].increment();
+        total.add(nanos);
+        maximo.accumulate(nanos);
+    }
+
+    public long getCantidad() {
+        long cantidad = 0;
+        for (LongAdder cubeta : cubetas) {
+            cantidad += cubeta.sum();
+        }
+        return cantidad;
+    }
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    public long getMaximoNanos() {
+        return maximo.get();
+    }
+
+    public double getPromedioNanos() {
+        long cantidad = getCantidad();
+        return cantidad == 0 ? 0 : (double) total.sum() / cantidad;
+    }
+
+    /**
+     * Límite superior aproximado del percentil pedido (entre 0 y 100)
+     */
+    public long percentilNanos(double percentil) {
+        long[] conteos = new long[CUBETAS];
+        long cantidad = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            conteos[i] = cubetas[i].sum();
+            cantidad += conteos[i];
+        }
+        if (cantidad == 0) {
+            return 0;
+        }
+        long buscado = (long) Math.ceil(cantidad * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += conteos[i];
+            if (acumulado >= buscado) {
+                // Nunca por encima del máximo observado
+                return Math.min(i >= 62 ? Long.MAX_VALUE : (2L << i) - 1, maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    public void reiniciar() {
+        for (LongAdder cubeta : cubetas) {
+            cubeta.reset();
+        }
+        total.reset();
+        maximo.reset();
+    }
+}
@@ -0,0 +1,125 @@
+package matrix;
+
+/**
+ * Índice espacial de ocupación del tablero.
+ * Guarda una capa de bits por tipo de objeto (muros y teléfonos sin usar) y un
+ * contador de agentes vivos por celda, de modo que preguntar qué hay en una
+ * posición cuesta O(1) en lugar de recorrer las listas del juego.
+ */
+public class IndiceOcupacion {
+    private final Mundo mundo;
+    private final long[] muros;
+    private final long[] telefonos;
+    // Se cuentan los agentes en lugar de guardar su id porque dos agentes pueden compartir celda
+    private final int[] agentes;
+    // Cambia con cada muro nuevo, para saber si una copia de la capa sigue vigente
+    private int versionMuros;
+    // Igual para los teléfonos: cambia cuando se agrega uno o Neo usa uno
+    private int versionTelefonos;
+
+    public IndiceOcupacion(Mundo mundo) {
+        this.mundo = mundo;
+        int palabras = (mundo.getCeldas() + 63) >>> 6;
+        this.muros = new long[palabras];
+        this.telefonos = new long[palabras];
+        this.agentes = mundo.nuevaCapaEnteros();
+    }
+
+    public Mundo getMundo() {
+        return mundo;
+    }
+
+    // Muros
+    public void agregarMuro(int x, int y) {
+        activar(muros, mundo.indice(x, y));
+        versionMuros++;
+    }
+
+    public void quitarMuro(int x, int y) {
+        desactivar(muros, mundo.indice(x, y));
+        versionMuros++;
+    }
+
+    public boolean hayMuro(int x, int y) {
+        return activo(muros, mundo.indice(x, y));
+    }
+
+    // Teléfonos sin usar
+    public void agregarTelefono(int x, int y) {
+        activar(telefonos, mundo.indice(x, y));
+        versionTelefonos++;
+    }
+
+    public void quitarTelefono(int x, int y) {
+        desactivar(telefonos, mundo.indice(x, y));
+        versionTelefonos++;
+    }
+
+    public boolean hayTelefono(int x, int y) {
+        return activo(telefonos, mundo.indice(x, y));
+    }
+
+    // Agentes vivos
+    public void agregarAgente(int x, int y) {
+        agentes[mundo.indice(x, y)]++;
+    }
+
+    public void quitarAgente(int x, int y) {
+        agentes[mundo.indice(x, y)]--;
+    }
+
+    /**
+     * Actualiza el índice cuando un agente pasa de una celda a otra
+     */
+    public void moverAgente(int desdeX, int desdeY, int hastaX, int hastaY) {
+        agentes[mundo.indice(desdeX, desdeY)]--;
+        agentes[mundo.indice(hastaX, hastaY)]++;
+    }
+
+    /**
+     * Cantidad de agentes vivos en la posición (0 si está fuera del tablero)
+     */
+    public int agentesEn(int x, int y) {
+        if (!mundo.contiene(x, y)) {
+            return 0;
+        }
+        return agentes[mundo.indice(x, y)];
+    }
+
+    /**
+     * Verifica si la celda tiene un muro, un teléfono sin usar o algún agente
+     */
+    public boolean ocupada(int x, int y) {
+        int celda = mundo.indice(x, y);
+        return activo(muros, celda) || activo(telefonos, celda) || agentes[celda] > 0;
+    }
+
+    // Copias de las capas para las instantáneas de cada turno
+    public int getVersionMuros() {
+        return versionMuros;
+    }
+    
+    public int getVersionTelefonos() {
+        return versionTelefonos;
+    }
+    
+    public long[] copiarMuros() {
+        return muros.clone();
+    }
+    
+    public long[] copiarTelefonos() {
+        return telefonos.clone();
+    }
+    
+    private static void activar(long[] capa, int celda) {
+        capa[celda >>> 6] |= 1L << celda;
+    }
+
+    private static void desactivar(long[] capa, int celda) {
+        capa[celda >>> 6] &= ~(1L << celda);
+    }
+
+    private static boolean activo(long[] capa, int celda) {
+        return (capa[celda >>> 6] & (1L << celda)) != 0;
+    }
+}
@@ -0,0 +1,219 @@
+package matrix;
+
+import java.util.*;
+
+/**
+ * Fotografía inmutable del mundo tomada al cerrar cada turno.
+ * Los buscadores de caminos de Neo y de los agentes planifican solo contra ella,
+ * así que leen sin bloqueos aunque el estado vivo del juego cambie después.
+ *
+ * Todo se guarda en arreglos planos de primitivos indexados por celda o por
+ * ranura (0 = Neo, 1..n = agentes, igual que en PosicionesTurno).
+ *
+ * Cada turno se crea una nueva, del tamaño de los personajes y no del tablero: las
+ * capas de muros y de teléfonos nunca se escriben y se comparten con la instantánea
+ * anterior mientras su versión no cambie, y los agentes por celda se cuentan en una
+ * tabla hash con lugar solo para las celdas ocupadas.
+ */
+public final class InstantaneaMundo {
+    // Hashing de Fibonacci: multiplicar por 2^32 / phi reparte bien celdas consecutivas
+    private static final int MEZCLA = 0x9E3779B9;
+
+    private final Mundo mundo;
+    private final int turno;
+    private final int[] celdasPersonajes;
+    private final long[] vivos;
+    private final long[] muros;
+    private final int versionMuros;
+    private final long[] telefonos;
+    private final int versionTelefonos;
+    // Teléfonos sin usar en el orden de la lista del juego, para desempatar igual que antes
+    private final int[] celdasTelefonos;
+    // Direccionamiento abierto: celda en los 32 bits altos y cantidad en los bajos; 0 = lugar libre
+    private final long[] agentesPorCelda;
+    private final int bitsTabla;
+
+    private InstantaneaMundo(Mundo mundo, int turno, int[] celdasPersonajes, long[] vivos,
+                             long[] muros, int versionMuros, long[] telefonos, int versionTelefonos,
+                             int[] celdasTelefonos) {
+        this.mundo = mundo;
+        this.turno = turno;
+        this.celdasPersonajes = celdasPersonajes;
+        this.vivos = vivos;
+        this.muros = muros;
+        this.versionMuros = versionMuros;
+        this.telefonos = telefonos;
+        this.versionTelefonos = versionTelefonos;
+        this.celdasTelefonos = celdasTelefonos;
+        // Al menos el doble de lugares que agentes, para que las búsquedas terminen en pocos saltos
+        int lugares = Integer.highestOneBit(Math.max(2, 2 * (celdasPersonajes.length - 1)) - 1) << 1;
+        this.bitsTabla = Integer.numberOfTrailingZeros(lugares);
+        this.agentesPorCelda = new long[lugares];
+        for (int ranura = 1; ranura < celdasPersonajes.length; ranura++) {
+            if (estaVivo(ranura)) {
+                contarAgente(celdasPersonajes[ranura]);
+            }
+        }
+    }
+
+    /**
+     * Toma la fotografía del estado actual. Debe llamarse cuando nadie modifica
+     * el juego (al cerrar la fase de aplicación). Cuesta O(personajes): las capas
+     * por celda solo se copian si cambiaron.
+     *
+     * @param posiciones posiciones publicadas de Neo y los agentes
+     * @param anterior instantánea publicada hasta ahora o null; se comparten sus capas vigentes
+     */
+    static InstantaneaMundo tomar(int turno, IndiceOcupacion ocupacion, PosicionesTurno posiciones,
+                                  AlmacenAgentes agentes, boolean neoVivo, List<Telefono> listaTelefonos,
+                                  InstantaneaMundo anterior) {
+        Mundo mundo = ocupacion.getMundo();
+
+        // Los muros casi nunca cambian: la capa se comparte mientras su versión sea la misma
+        int versionMuros = ocupacion.getVersionMuros();
+        long[] muros = anterior != null && anterior.versionMuros == versionMuros
+                ? anterior.muros : ocupacion.copiarMuros();
+
+        // Los teléfonos solo cambian cuando Neo usa uno
+        int versionTelefonos = ocupacion.getVersionTelefonos();
+        long[] telefonos;
+        int[] celdasTelefonos;
+        if (anterior != null && anterior.versionTelefonos == versionTelefonos) {
+            telefonos = anterior.telefonos;
+            celdasTelefonos = anterior.celdasTelefonos;
+        } else {
+            telefonos = ocupacion.copiarTelefonos();
+            celdasTelefonos = celdasSinUsar(mundo, listaTelefonos);
+        }
+
+        return new InstantaneaMundo(mundo, turno, posiciones.copiarCeldas(), agentes.vivosPorRanura(neoVivo),
+                muros, versionMuros, telefonos, versionTelefonos, celdasTelefonos);
+    }
+
+    private static int[] celdasSinUsar(Mundo mundo, List<Telefono> listaTelefonos) {
+        int[] celdas = new int[listaTelefonos.size()];
+        int libres = 0;
+        for (Telefono tel : listaTelefonos) {
+            if (!tel.isUsado()) {
+                celdas[libres++] = mundo.indice(tel.getPosX(), tel.getPosY());
+            }
+        }
+        return Arrays.copyOf(celdas, libres);
+    }
+
+    /**
+     * Arma una instantánea a partir de capas sueltas, como las que reconstruye el
+     * reproductor de partidas. Las capas se copian, así que quien llama puede seguir usándolas.
+     */
+    public static InstantaneaMundo reconstruir(Mundo mundo, int turno, int[] celdasPersonajes, long[] vivos,
+                                               long[] muros, long[] telefonos) {
+        int libres = 0;
+        for (long palabra : telefonos) {
+            libres += Long.bitCount(palabra);
+        }
+        int[] celdasTelefonos = new int[libres];
+        int i = 0;
+        for (int palabra = 0; palabra < telefonos.length; palabra++) {
+            for (long bits = telefonos[palabra]; bits != 0; bits &= bits - 1) {
+                celdasTelefonos[i++] = (palabra << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+
+        return new InstantaneaMundo(mundo, turno, celdasPersonajes.clone(), vivos.clone(), muros.clone(),
+                0, telefonos.clone(), 0, celdasTelefonos);
+    }
+
+    public Mundo getMundo() {
+        return mundo;
+    }
+
+    public int getTurno() {
+        return turno;
+    }
+
+    // Personajes por ranura
+    public int getCantidadPersonajes() {
+        return celdasPersonajes.length;
+    }
+
+    public int celda(int ranura) {
+        return celdasPersonajes[ranura];
+    }
+
+    public int x(int ranura) {
+        return mundo.x(celdasPersonajes[ranura]);
+    }
+
+    public int y(int ranura) {
+        return mundo.y(celdasPersonajes[ranura]);
+    }
+
+    public boolean estaVivo(int ranura) {
+        return (vivos[ranura >>> 6] & (1L << ranura)) != 0;
+    }
+
+    /**
+     * Cambia solo cuando se agrega o quita un muro; sirve para saber si una búsqueda guardada sigue valiendo
+     */
+    public int getVersionMuros() {
+        return versionMuros;
+    }
+
+    // Contenido de las celdas
+    public boolean hayMuro(int x, int y) {
+        return activo(muros, mundo.indice(x, y));
+    }
+
+    public boolean hayTelefono(int x, int y) {
+        return activo(telefonos, mundo.indice(x, y));
+    }
+
+    /**
+     * Cantidad de agentes en la posición (0 si está fuera del tablero)
+     */
+    public int agentesEn(int x, int y) {
+        if (!mundo.contiene(x, y)) {
+            return 0;
+        }
+        int celda = mundo.indice(x, y);
+        int mascara = agentesPorCelda.length - 1;
+        for (int lugar = lugar(celda); ; lugar = (lugar + 1) & mascara) {
+            long entrada = agentesPorCelda[lugar];
+            if (entrada == 0) {
+                return 0;
+            }
+            if ((int) (entrada >>> 32) == celda) {
+                return (int) entrada;
+            }
+        }
+    }
+
+    // Teléfonos sin usar
+    public int getCantidadTelefonos() {
+        return celdasTelefonos.length;
+    }
+
+    public int celdaTelefono(int i) {
+        return celdasTelefonos[i];
+    }
+
+    /**
+     * Suma un agente a la celda; solo mientras se construye la instantánea
+     */
+    private void contarAgente(int celda) {
+        int mascara = agentesPorCelda.length - 1;
+        int lugar = lugar(celda);
+        while (agentesPorCelda[lugar] != 0 && (int) (agentesPorCelda[lugar] >>> 32) != celda) {
+            lugar = (lugar + 1) & mascara;
+        }
+        agentesPorCelda[lugar] = agentesPorCelda[lugar] == 0 ? ((long) celda << 32) | 1 : agentesPorCelda[lugar] + 1;
+    }
+
+    private int lugar(int celda) {
+        return (celda * MEZCLA) >>> (32 - bitsTabla);
+    }
+
+    private static boolean activo(long[] capa, int celda) {
+        return (capa[celda >>> 6] & (1L << celda)) != 0;
+    }
+}
@@ -0,0 +1,509 @@
+package matrix;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Abstracción jerárquica del tablero (HPA*) para mapas grandes con muchos muros.
+ * El tablero se divide en clusters de TAMANIO x TAMANIO celdas; en cada borde entre
+ * dos clusters vecinos se eligen entradas (celdas libres a ambos lados) y dentro de
+ * cada cluster se precalcula la distancia entre todas sus entradas. Todo depende
+ * solo de los muros, así que se arma una vez al crear el mundo, con los clusters
+ * repartidos entre núcleos (cada uno escribe solo sus propias entradas).
+ *
+ * Una consulta conecta el origen y los objetivos a las entradas de sus clusters,
+ * busca con A* sobre el grafo de entradas y refina solo el primer tramo, dentro del
+ * cluster del origen, con el costo real del buscador (agentes, penalizaciones).
+ * El mapa se comparte entre hilos: cada uno trae su ConsultaJerarquica.
+ */
+public class MapaJerarquico {
+    public static final int TAMANIO = 16;
+    private static final int SIN_CAMINO = -1;
+    private static final int INFINITO = Integer.MAX_VALUE;
+    // En la plantilla de un cluster: celda con muro o fuera del tablero
+    private static final int BLOQUEADA = -1;
+    // Un tramo libre corto tiene una entrada en el medio; uno largo, una en cada extremo
+    private static final int TRAMO_LARGO = 6;
+    // Bits de dirección en el orden de Mundo.DX / Mundo.DY
+    private static final int OESTE = 0;
+    private static final int ESTE = 1;
+    private static final int NORTE = 2;
+    private static final int SUR = 3;
+
+    private final Mundo mundo;
+    private final long[] muros;
+    private final int columnas;
+    private final int filas;
+    // Entradas de cada borde, guardadas por la celda del lado oeste (o norte) del borde
+    private final int[][] entradasEste;
+    private final int[][] entradasSur;
+    // Por cluster: celdas de sus entradas, direcciones hacia el cluster vecino y distancias entre entradas (k x k)
+    private final int[][] nodos;
+    private final byte[][] enlaces;
+    private final int[][] costos;
+    // BFS locales de la construcción: plantilla, distancias y cola del tamaño de un cluster
+    private final ThreadLocal<int[][]> locales;
+
+    public MapaJerarquico(Mundo mundo, long[] muros) {
+        this.mundo = mundo;
+        this.muros = muros.clone();
+        this.columnas = (mundo.getAncho() + TAMANIO - 1) / TAMANIO;
+        this.filas = (mundo.getAlto() + TAMANIO - 1) / TAMANIO;
+        int clusters = columnas * filas;
+        this.entradasEste = new int[clusters][];
+        this.entradasSur = new int[clusters][];
+        this.nodos = new int[clusters][];
+        this.enlaces = new byte[clusters][];
+        this.costos = new int[clusters][];
+        this.locales = ThreadLocal.withInitial(() -> new int[][] {
+                new int[TAMANIO * TAMANIO], new int[TAMANIO * TAMANIO], new int[TAMANIO * TAMANIO]});
+
+        IntStream.range(0, clusters).parallel().forEach(c -> {
+            entradasEste[c] = calcularEntradasEste(c);
+            entradasSur[c] = calcularEntradasSur(c);
+        });
+        IntStream.range(0, clusters).parallel().forEach(this::armarCluster);
+    }
+
+    public int getClusters() {
+        return columnas * filas;
+    }
+
+    public int getEntradas() {
+        int total = 0;
+        for (int[] entradas : nodos) {
+            total += entradas.length;
+        }
+        return total;
+    }
+
+    /**
+     * Primer paso desde origen hacia el objetivo más cercano, o -1 si no hay camino
+     *
+     * @param objetivos celdas destino; se usan las primeras cantidadObjetivos
+     * @param costo costo real de entrar a (x, y) para refinar el primer tramo; INFINITO si está bloqueada
+     */
+    public int siguientePaso(int origen, int[] objetivos, int cantidadObjetivos,
+                             IntBinaryOperator costo, ConsultaJerarquica consulta) {
+        consulta.reiniciar();
+        for (int i = 0; i < cantidadObjetivos; i++) {
+            if (objetivos[i] == origen) {
+                return SIN_CAMINO;
+            }
+        }
+        int destinoTramo = buscarAbstracto(origen, objetivos, cantidadObjetivos, consulta);
+        if (destinoTramo == SIN_CAMINO) {
+            return SIN_CAMINO;
+        }
+        if (cluster(destinoTramo) != cluster(origen)) {
+            // El tramo cruza el borde: el destino es la celda vecina del otro lado
+            return costo.applyAsInt(mundo.x(destinoTramo), mundo.y(destinoTramo)) == INFINITO
+                    ? SIN_CAMINO : destinoTramo;
+        }
+        return refinarTramo(origen, destinoTramo, costo, consulta);
+    }
+
+    /**
+     * A* sobre el grafo de entradas con el origen y los objetivos conectados a sus clusters.
+     * Devuelve el final del primer tramo del camino abstracto.
+     */
+    private int buscarAbstracto(int origen, int[] objetivos, int cantidadObjetivos, ConsultaJerarquica consulta) {
+        EspacioBusqueda espacio = consulta.getEspacio();
+        int clusterOrigen = cluster(origen);
+        int[] entradasOrigen = nodos[clusterOrigen];
+        int[] plantilla = consulta.plantillaLocal(TAMANIO * TAMANIO);
+        int[] distanciasLocales = consulta.distanciasLocales(TAMANIO * TAMANIO);
+        int[] colaLocal = consulta.colaLocal(TAMANIO * TAMANIO);
+
+        // Distancias locales (solo muros) del origen y de cada objetivo a las entradas de su cluster
+        prepararPlantilla(clusterOrigen, plantilla);
+        consulta.sumarNodos(explorarCluster(origen, clusterOrigen, plantilla, distanciasLocales, colaLocal));
+        int[] distanciasOrigen = consulta.distanciasOrigen(entradasOrigen.length);
+        copiarDistancias(clusterOrigen, entradasOrigen, distanciasLocales, distanciasOrigen);
+        int[] directas = consulta.directas(cantidadObjetivos);
+        for (int i = 0; i < cantidadObjetivos; i++) {
+            directas[i] = cluster(objetivos[i]) == clusterOrigen
+                    ? distanciaLocal(distanciasLocales, indiceEnCluster(clusterOrigen, objetivos[i])) : INFINITO;
+        }
+        for (int i = 0; i < cantidadObjetivos; i++) {
+            int clusterObjetivo = cluster(objetivos[i]);
+            prepararPlantilla(clusterObjetivo, plantilla);
+            consulta.sumarNodos(explorarCluster(objetivos[i], clusterObjetivo, plantilla, distanciasLocales, colaLocal));
+            copiarDistancias(clusterObjetivo, nodos[clusterObjetivo], distanciasLocales,
+                    consulta.distanciasObjetivo(i, nodos[clusterObjetivo].length));
+        }
+
+        espacio.reiniciar();
+        MonticuloBinario cola = espacio.getMonticulo();
+        MarcasVisita descubierta = espacio.getDescubiertas();
+        MarcasVisita cerrada = espacio.getCerradas();
+        int[] distancias = espacio.getDistancias();
+        int[] padres = espacio.getPadres();
+
+        distancias[origen] = 0;
+        padres[origen] = -1;
+        descubierta.marcar(origen);
+        cola.agregar(origen, heuristica(origen, objetivos, cantidadObjetivos));
+
+        while (!cola.estaVacio()) {
+            int nodo = cola.sacar();
+            if (cerrada.estaMarcada(nodo)) continue;
+            cerrada.marcar(nodo);
+            consulta.sumarNodos(1);
+
+            if (nodo != origen && esObjetivo(nodo, objetivos, cantidadObjetivos)) {
+                return primerTramo(padres, origen, nodo);
+            }
+
+            int c = cluster(nodo);
+            int[] entradas = nodos[c];
+            int local = nodo == origen ? -1 : indiceLocal(c, nodo);
+            if (nodo == origen) {
+                for (int j = 0; j < entradas.length; j++) {
+                    relajar(espacio, nodo, entradas[j], distanciasOrigen[j], objetivos, cantidadObjetivos);
+                }
+                for (int i = 0; i < cantidadObjetivos; i++) {
+                    relajar(espacio, nodo, objetivos[i], directas[i], objetivos, cantidadObjetivos);
+                }
+                // Si el origen es una entrada también puede cruzar su borde directamente
+                local = indiceLocal(c, nodo);
+            } else if (local >= 0) {
+                int k = entradas.length;
+                for (int j = 0; j < k; j++) {
+                    if (j != local) {
+                        relajar(espacio, nodo, entradas[j], costos[c][local * k + j], objetivos, cantidadObjetivos);
+                    }
+                }
+                for (int i = 0; i < cantidadObjetivos; i++) {
+                    if (cluster(objetivos[i]) == c) {
+                        relajar(espacio, nodo, objetivos[i], consulta.distanciasObjetivo(i, k)[local],
+                                objetivos, cantidadObjetivos);
+                    }
+                }
+            }
+            if (local >= 0) {
+                int direcciones = enlaces[c][local];
+                for (int d = 0; d < 4; d++) {
+                    if ((direcciones & (1 << d)) != 0) {
+                        int vecino = mundo.indice(mundo.x(nodo) + Mundo.DX[d], mundo.y(nodo) + Mundo.DY[d]);
+                        relajar(espacio, nodo, vecino, 1, objetivos, cantidadObjetivos);
+                    }
+                }
+            }
+        }
+        return SIN_CAMINO;
+    }
+
+    private void relajar(EspacioBusqueda espacio, int desde, int hasta, int costo,
+                         int[] objetivos, int cantidadObjetivos) {
+        if (costo == INFINITO || espacio.getCerradas().estaMarcada(hasta)) {
+            return;
+        }
+        int[] distancias = espacio.getDistancias();
+        int nueva = distancias[desde] + costo;
+        if (!espacio.getDescubiertas().estaMarcada(hasta) || nueva < distancias[hasta]) {
+            espacio.getDescubiertas().marcar(hasta);
+            distancias[hasta] = nueva;
+            espacio.getPadres()[hasta] = desde;
+            espacio.getMonticulo().agregar(hasta, nueva + heuristica(hasta, objetivos, cantidadObjetivos));
+        }
+    }
+
+    /**
+     * Dijkstra con el costo real, limitado al cluster del origen, hasta el final del primer tramo
+     */
+    private int refinarTramo(int origen, int destino, IntBinaryOperator costo, ConsultaJerarquica consulta) {
+        EspacioBusqueda espacio = consulta.getEspacio();
+        espacio.reiniciar();
+        MonticuloBinario cola = espacio.getMonticulo();
+        MarcasVisita descubierta = espacio.getDescubiertas();
+        MarcasVisita cerrada = espacio.getCerradas();
+        int[] distancias = espacio.getDistancias();
+        int[] padres = espacio.getPadres();
+        int c = cluster(origen);
+
+        distancias[origen] = 0;
+        padres[origen] = -1;
+        descubierta.marcar(origen);
+        cola.agregar(origen, 0);
+        while (!cola.estaVacio()) {
+            int celda = cola.sacar();
+            if (cerrada.estaMarcada(celda)) continue;
+            cerrada.marcar(celda);
+            consulta.sumarNodos(1);
+            if (celda == destino) {
+                return primerTramo(padres, origen, destino);
+            }
+            int x = mundo.x(celda);
+            int y = mundo.y(celda);
+            for (int d = 0; d < 4; d++) {
+                int nx = x + Mundo.DX[d];
+                int ny = y + Mundo.DY[d];
+                if (!mundo.contiene(nx, ny)) continue;
+                int vecino = mundo.indice(nx, ny);
+                if (cluster(vecino) != c || cerrada.estaMarcada(vecino)) continue;
+                int paso = costo.applyAsInt(nx, ny);
+                if (paso == INFINITO) continue;
+                int nueva = distancias[celda] + paso;
+                if (!descubierta.estaMarcada(vecino) || nueva < distancias[vecino]) {
+                    descubierta.marcar(vecino);
+                    distancias[vecino] = nueva;
+                    padres[vecino] = celda;
+                    cola.agregar(vecino, nueva);
+                }
+            }
+        }
+        // Los agentes cierran el paso dentro del cluster: este turno no se avanza
+        return SIN_CAMINO;
+    }
+
+    /**
+     * Sube por los padres desde el final hasta el nodo que sigue al origen
+     */
+    private static int primerTramo(int[] padres, int origen, int destino) {
+        int celda = destino;
+        while (padres[celda] != origen) {
+            celda = padres[celda];
+        }
+        return celda;
+    }
+
+    /**
+     * Plantilla del cluster con índices locales: INFINITO en las celdas libres y
+     * BLOQUEADA en los muros y fuera del tablero. Se copia al empezar cada BFS.
+     */
+    private void prepararPlantilla(int c, int[] plantilla) {
+        int x0 = (c % columnas) * TAMANIO;
+        int y0 = (c / columnas) * TAMANIO;
+        for (int ly = 0; ly < TAMANIO; ly++) {
+            for (int lx = 0; lx < TAMANIO; lx++) {
+                boolean libre = mundo.contiene(x0 + lx, y0 + ly) && !esMuro(mundo.indice(x0 + lx, y0 + ly));
+                plantilla[ly * TAMANIO + lx] = libre ? INFINITO : BLOQUEADA;
+            }
+        }
+    }
+
+    /**
+     * BFS por celdas libres dentro de un cluster, con índices locales al cluster.
+     * Las celdas que no alcanza quedan en INFINITO (o BLOQUEADA si tienen muro).
+     */
+    private int explorarCluster(int origen, int c, int[] plantilla, int[] distancias, int[] cola) {
+        System.arraycopy(plantilla, 0, distancias, 0, TAMANIO * TAMANIO);
+
+        int inicio = indiceEnCluster(c, origen);
+        distancias[inicio] = 0;
+        cola[0] = inicio;
+        int cabeza = 0;
+        int fin = 1;
+        while (cabeza < fin) {
+            int local = cola[cabeza++];
+            int lx = local % TAMANIO;
+            int siguiente = distancias[local] + 1;
+            // Oeste, este, norte y sur sin salir del cluster
+            if (lx > 0 && distancias[local - 1] == INFINITO) {
+                distancias[local - 1] = siguiente;
+                cola[fin++] = local - 1;
+            }
+            if (lx < TAMANIO - 1 && distancias[local + 1] == INFINITO) {
+                distancias[local + 1] = siguiente;
+                cola[fin++] = local + 1;
+            }
+            if (local >= TAMANIO && distancias[local - TAMANIO] == INFINITO) {
+                distancias[local - TAMANIO] = siguiente;
+                cola[fin++] = local - TAMANIO;
+            }
+            if (local < TAMANIO * (TAMANIO - 1) && distancias[local + TAMANIO] == INFINITO) {
+                distancias[local + TAMANIO] = siguiente;
+                cola[fin++] = local + TAMANIO;
+            }
+        }
+        return fin;
+    }
+
+    private static int distanciaLocal(int[] distancias, int local) {
+        return distancias[local] == BLOQUEADA ? INFINITO : distancias[local];
+    }
+
+    private void copiarDistancias(int c, int[] celdas, int[] distanciasLocales, int[] destino) {
+        for (int j = 0; j < celdas.length; j++) {
+            destino[j] = distanciaLocal(distanciasLocales, indiceEnCluster(c, celdas[j]));
+        }
+    }
+
+    private int indiceEnCluster(int c, int celda) {
+        return (mundo.y(celda) - (c / columnas) * TAMANIO) * TAMANIO + (mundo.x(celda) - (c % columnas) * TAMANIO);
+    }
+
+    /**
+     * Reúne las entradas de los cuatro bordes del cluster y precalcula sus distancias internas
+     */
+    private void armarCluster(int c) {
+        int cx = c % columnas;
+        int cy = c / columnas;
+        int[] celdas = new int[16];
+        byte[] direcciones = new byte[16];
+        int k = 0;
+
+        for (int celda : entradasEste[c]) {
+            k = agregarEntrada(celdas, direcciones, k, celda, ESTE);
+            celdas = ampliar(celdas, k);
+            direcciones = ampliar(direcciones, k);
+        }
+        if (cx > 0) {
+            for (int celda : entradasEste[c - 1]) {
+                k = agregarEntrada(celdas, direcciones, k, celda + 1, OESTE);
+                celdas = ampliar(celdas, k);
+                direcciones = ampliar(direcciones, k);
+            }
+        }
+        for (int celda : entradasSur[c]) {
+            k = agregarEntrada(celdas, direcciones, k, celda, SUR);
+            celdas = ampliar(celdas, k);
+            direcciones = ampliar(direcciones, k);
+        }
+        if (cy > 0) {
+            for (int celda : entradasSur[c - columnas]) {
+                k = agregarEntrada(celdas, direcciones, k, celda + mundo.getAncho(), NORTE);
+                celdas = ampliar(celdas, k);
+                direcciones = ampliar(direcciones, k);
+            }
+        }
+        nodos[c] = Arrays.copyOf(celdas, k);
+        enlaces[c] = Arrays.copyOf(direcciones, k);
+
+        int[] distancias = new int[k * k];
+        int[] fila = new int[k];
+        int[][] local = locales.get();
+        prepararPlantilla(c, local[0]);
+        for (int i = 0; i < k; i++) {
+            explorarCluster(nodos[c][i], c, local[0], local[1], local[2]);
+            copiarDistancias(c, nodos[c], local[1], fila);
+            System.arraycopy(fila, 0, distancias, i * k, k);
+        }
+        costos[c] = distancias;
+    }
+
+    /**
+     * Agrega una entrada o suma la dirección si la celda ya era entrada por otro borde (esquinas)
+     */
+    private static int agregarEntrada(int[] celdas, byte[] direcciones, int k, int celda, int direccion) {
+        for (int i = 0; i < k; i++) {
+            if (celdas[i] == celda) {
+                direcciones[i] = (byte) (direcciones[i] | 1 << direccion);
+                return k;
+            }
+        }
+        celdas[k] = celda;
+        direcciones[k] = (byte) (1 << direccion);
+        return k + 1;
+    }
+
+    private static int[] ampliar(int[] arreglo, int usados) {
+        return usados < arreglo.length ? arreglo : Arrays.copyOf(arreglo, arreglo.length * 2);
+    }
+
+    private static byte[] ampliar(byte[] arreglo, int usados) {
+        return usados < arreglo.length ? arreglo : Arrays.copyOf(arreglo, arreglo.length * 2);
+    }
+
+    /**
+     * Entradas entre el cluster y su vecino del este: tramos de filas libres a ambos lados del borde
+     */
+    private int[] calcularEntradasEste(int c) {
+        int cx = c % columnas;
+        if (cx + 1 >= columnas) {
+            return new int[0];
+        }
+        int x = (cx + 1) * TAMANIO - 1;
+        int desde = (c / columnas) * TAMANIO;
+        int hasta = Math.min(desde + TAMANIO, mundo.getAlto());
+        int[] entradas = new int[TAMANIO];
+        int cantidad = 0;
+        int inicioTramo = -1;
+        for (int y = desde; y <= hasta; y++) {
+            boolean libre = y < hasta && !esMuro(mundo.indice(x, y)) && !esMuro(mundo.indice(x + 1, y));
+            if (libre && inicioTramo < 0) {
+                inicioTramo = y;
+            } else if (!libre && inicioTramo >= 0) {
+                cantidad = agregarTramo(entradas, cantidad, inicioTramo, y - 1, x, true);
+                inicioTramo = -1;
+            }
+        }
+        return Arrays.copyOf(entradas, cantidad);
+    }
+
+    /**
+     * Entradas entre el cluster y su vecino del sur: tramos de columnas libres a ambos lados del borde
+     */
+    private int[] calcularEntradasSur(int c) {
+        int cy = c / columnas;
+        if (cy + 1 >= filas) {
+            return new int[0];
+        }
+        int y = (cy + 1) * TAMANIO - 1;
+        int desde = (c % columnas) * TAMANIO;
+        int hasta = Math.min(desde + TAMANIO, mundo.getAncho());
+        int[] entradas = new int[TAMANIO];
+        int cantidad = 0;
+        int inicioTramo = -1;
+        for (int x = desde; x <= hasta; x++) {
+            boolean libre = x < hasta && !esMuro(mundo.indice(x, y)) && !esMuro(mundo.indice(x, y + 1));
+            if (libre && inicioTramo < 0) {
+                inicioTramo = x;
+            } else if (!libre && inicioTramo >= 0) {
+                cantidad = agregarTramo(entradas, cantidad, inicioTramo, x - 1, y, false);
+                inicioTramo = -1;
+            }
+        }
+        return Arrays.copyOf(entradas, cantidad);
+    }
+
+    private int agregarTramo(int[] entradas, int cantidad, int inicio, int fin, int fijo, boolean vertical) {
+        if (fin - inicio + 1 < TRAMO_LARGO) {
+            int medio = (inicio + fin) / 2;
+            entradas[cantidad++] = vertical ? mundo.indice(fijo, medio) : mundo.indice(medio, fijo);
+        } else {
+            entradas[cantidad++] = vertical ? mundo.indice(fijo, inicio) : mundo.indice(inicio, fijo);
+            entradas[cantidad++] = vertical ? mundo.indice(fijo, fin) : mundo.indice(fin, fijo);
+        }
+        return cantidad;
+    }
+
+    private int cluster(int celda) {
+        return (mundo.x(celda) / TAMANIO) + (mundo.y(celda) / TAMANIO) * columnas;
+    }
+
+    private int indiceLocal(int c, int celda) {
+        int[] entradas = nodos[c];
+        for (int i = 0; i < entradas.length; i++) {
+            if (entradas[i] == celda) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean esObjetivo(int celda, int[] objetivos, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            if (objetivos[i] == celda) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int heuristica(int celda, int[] objetivos, int cantidad) {
+        int minima = Integer.MAX_VALUE;
+        int x = mundo.x(celda);
+        int y = mundo.y(celda);
+        for (int i = 0; i < cantidad; i++) {
+            minima = Math.min(minima, Math.abs(mundo.x(objetivos[i]) - x) + Math.abs(mundo.y(objetivos[i]) - y));
+        }
+        return minima == Integer.MAX_VALUE ? 0 : minima;
+    }
+
+    private boolean esMuro(int celda) {
+        return (muros[celda >>> 6] & (1L << celda)) != 0;
+    }
+}
@@ -0,0 +1,38 @@
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * Arreglo de visitados que no necesita limpiarse entre búsquedas.
+ * Cada búsqueda usa una generación nueva: una celda está marcada solo si su
+ * sello coincide con la generación vigente.
+ */
+public class MarcasVisita {
+    private final int[] sellos;
+    private int generacion;
+
+    public MarcasVisita(int celdas) {
+        this.sellos = new int[celdas];
+        this.generacion = 0;
+    }
+
+    /**
+     * Olvida todas las marcas en O(1)
+     */
+    public void nuevaBusqueda() {
+        generacion++;
+        if (generacion == 0) {
+            // Tras dar la vuelta al contador los sellos viejos podrían confundirse con los nuevos
+            Arrays.fill(sellos, 0);
+            generacion = 1;
+        }
+    }
+
+    public void marcar(int celda) {
+        sellos[celda] = generacion;
+    }
+
+    public boolean estaMarcada(int celda) {
+        return generacion != 0 && sellos[celda] == generacion;
+    }
+}
@@ -1,37 +1,304 @@
 package matrix;
 
+import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 public class MatrixGame {
     private static final int TAMANIO = 10;
     private static final int MAX_MUROS = 10;
+    private static final int MAX_TELEFONOS = 2;
+    private static final int CANTIDAD_AGENTES = 4;
+    private static final long PAUSA_MS = 500;
+    private static final long ESPERA_PASO_MS = 1000;
     
-    private char[][] tablero;
+    private Mundo mundo;
+    private IndiceOcupacion ocupacion;
+    private CampoPersecucion campoPersecucion;
+    private boolean usarCampoPersecucion;
+    // Abstracción HPA* de los muros, solo si Neo o los agentes la usan
+    private boolean agentesJerarquicos;
+    private MapaJerarquico mapaJerarquico;
+    // Componentes conexas de las celdas libres, calculadas una vez con los muros definitivos
+    private ComponentesConexas componentes;
+    // Costos de Neo por celda, recalculados en paralelo una vez por turno con el núcleo elegido
+    private NucleoAmenaza nucleoAmenaza;
+    private CampoAmenaza campoAmenaza;
+    private EstrategiaNeo estrategiaNeo;
     private Neo neo;
+    // Estado de los agentes en arreglos paralelos; los objetos Agente solo existen en los modos con hilos
+    private AlmacenAgentes almacenAgentes;
     private List<Agente> agentes;
     private List<Telefono> telefonos;
     private List<Muro> muros;
     
-    private CyclicBarrier barreraCalculo;
-    private CyclicBarrier barreraAplicacion;
-    private Object lockTablero;
+    private SincronizacionTurnos sincronizacion;
+    // Phaser del hilo que llama a avanzarTurno() en modo paso a paso
+    private Phaser faseObservador;
+    // ReentrantLock en lugar de synchronized: un hilo virtual que espera no bloquea a su portador
+    private ReentrantLock lockTablero;
+    private TablaReservas reservas;
+    private PosicionesTurno posiciones;
+    // Instantánea inmutable del último turno cerrado, la única que leen los buscadores de caminos
+    private AtomicReference<InstantaneaMundo> mundoPublicado;
+    private ModoEjecucion modoEjecucion;
+    private PlanificadorTurnos planificador;
+    // Mediciones de la última partida: creación de hilos y tiempo hasta el último turno cerrado
+    private long nanosCreacionHilos;
+    private long inicioTurnos;
+    private long nanosTurnos;
     
     private int turnoActual;
     private Scanner scanner;
     
+    // Parámetros de generación y ejecución
+    private int maxTelefonos;
+    private int maxMuros;
+    private int cantidadAgentes;
+    private long pausaMs;
+    private int maxTurnos; // 0 = sin límite
+    private boolean silencioso;
+    private long semilla;
+    private GeneradorAleatorio generador;
+    private boolean resolucionDeterminista;
+    private boolean pasoAPaso;
+    private boolean renderizadoAnsi;
+    private RenderizadorTablero renderizador;
+    private NivelEventos nivelEventos; // null = según silencioso
+    private BusEventos eventos;
+    private Path archivoDiario; // null = no se graba la partida
+    private DiarioPartida diario;
+    private Path archivoPuntoControl; // null = sin puntos de control periódicos
+    private int turnosEntrePuntosControl;
+    // Conserva el búfer y la capa de muros ya escrita entre un guardado y el siguiente
+    private EscritorPuntoControl escritorPuntoControl;
+    // La partida viene de un punto de control: no hay que generar el mundo
+    private boolean restaurada;
+    private MetricasJuego metricas; // null = sin instrumentación
+    
     public MatrixGame() {
-        this.tablero = new char[TAMANIO][TAMANIO];
+        this(TAMANIO, TAMANIO);
+    }
+    
+    public MatrixGame(int ancho, int alto) {
+        this.mundo = new Mundo(ancho, alto);
+        this.ocupacion = new IndiceOcupacion(mundo);
+        this.usarCampoPersecucion = true;
+        this.estrategiaNeo = EstrategiaNeo.TELEFONO_MAS_CERCANO;
+        this.nucleoAmenaza = NucleoAmenaza.porDefecto();
+        this.almacenAgentes = new AlmacenAgentes(mundo, CANTIDAD_AGENTES);
         this.agentes = new ArrayList<>();
         this.telefonos = new ArrayList<>();
         this.muros = new ArrayList<>();
-        this.lockTablero = new Object();
+        this.lockTablero = new ReentrantLock();
         this.turnoActual = 0;
-        this.scanner = new Scanner(System.in);
+        this.maxTelefonos = MAX_TELEFONOS;
+        this.maxMuros = MAX_MUROS;
+        this.cantidadAgentes = CANTIDAD_AGENTES;
+        this.pausaMs = PAUSA_MS;
+        this.maxTurnos = 0;
+        this.silencioso = false;
+        this.semilla = new Random().nextLong();
+        this.resolucionDeterminista = false;
+        this.modoEjecucion = ModoEjecucion.HILOS;
+    }
+    
+    /**
+     * Permite volver a la BFS individual por agente en lugar del campo compartido
+     */
+    public void setUsarCampoPersecucion(boolean usarCampoPersecucion) {
+        this.usarCampoPersecucion = usarCampoPersecucion;
+    }
+    
+    /**
+     * Hace que los agentes busquen a Neo con el mapa jerárquico (HPA*) en lugar del campo compartido
+     */
+    public void setAgentesJerarquicos(boolean agentesJerarquicos) {
+        this.agentesJerarquicos = agentesJerarquicos;
+    }
+    
+    /**
+     * Cambia las penalizaciones por cercanía de agentes que usa Neo al planificar
+     */
+    public void setNucleoAmenaza(NucleoAmenaza nucleoAmenaza) {
+        this.nucleoAmenaza = nucleoAmenaza;
+    }
+    
+    public void setEstrategiaNeo(EstrategiaNeo estrategiaNeo) {
+        this.estrategiaNeo = estrategiaNeo;
+    }
+    
+    public void setMaxTelefonos(int maxTelefonos) {
+        this.maxTelefonos = maxTelefonos;
+    }
+    
+    public void setMaxMuros(int maxMuros) {
+        this.maxMuros = maxMuros;
+    }
+    
+    public void setCantidadAgentes(int cantidadAgentes) {
+        this.cantidadAgentes = cantidadAgentes;
+    }
+    
+    public void setPausaMs(long pausaMs) {
+        this.pausaMs = pausaMs;
+    }
+    
+    public void setMaxTurnos(int maxTurnos) {
+        this.maxTurnos = maxTurnos;
+    }
+    
+    public void setSilencioso(boolean silencioso) {
+        this.silencioso = silencioso;
+    }
+    
+    /**
+     * Fija la semilla del mundo: la misma semilla genera siempre los mismos teléfonos, muros y agentes
+     */
+    public void setSemilla(long semilla) {
+        this.semilla = semilla;
+    }
+    
+    public long getSemilla() {
+        return semilla;
+    }
+    
+    /**
+     * Resuelve las reservas de los agentes en orden de id al terminar la fase de cálculo,
+     * para que el resultado no dependa del orden en que se ejecutan los hilos.
+     * En modo POOL se resuelve siempre así.
+     */
+    public void setResolucionDeterminista(boolean resolucionDeterminista) {
+        this.resolucionDeterminista = resolucionDeterminista;
+    }
+    
+    /**
+     * Elige si cada personaje corre en su propio hilo o si un planificador ejecuta
+     * las fases del turno sobre un pool de hilos del tamaño de los núcleos
+     */
+    public void setModoEjecucion(ModoEjecucion modoEjecucion) {
+        this.modoEjecucion = modoEjecucion;
+    }
+    
+    /**
+     * Opciones de juego que guarda un punto de control
+     */
+    public ConfiguracionPartida getConfiguracion() {
+        return new ConfiguracionPartida(estrategiaNeo, modoEjecucion, nucleoAmenaza, maxTurnos,
+                usarCampoPersecucion, agentesJerarquicos, resolucionDeterminista);
+    }
+    
+    public void setConfiguracion(ConfiguracionPartida configuracion) {
+        estrategiaNeo = configuracion.getEstrategiaNeo();
+        modoEjecucion = configuracion.getModoEjecucion();
+        nucleoAmenaza = configuracion.getNucleoAmenaza();
+        maxTurnos = configuracion.getMaxTurnos();
+        usarCampoPersecucion = configuracion.isUsarCampoPersecucion();
+        agentesJerarquicos = configuracion.isAgentesJerarquicos();
+        resolucionDeterminista = configuracion.isResolucionDeterminista();
+    }
+    
+    /**
+     * Redibuja solo las celdas que cambian usando secuencias ANSI; los personajes no imprimen mensajes
+     */
+    public void setRenderizadoAnsi(boolean renderizadoAnsi) {
+        this.renderizadoAnsi = renderizadoAnsi;
+    }
+    
+    /**
+     * Nivel de detalle de la bitácora de eventos. Por defecto se registran los
+     * movimientos en consola y nada en modo silencioso.
+     */
+    public void setNivelEventos(NivelEventos nivelEventos) {
+        this.nivelEventos = nivelEventos;
+    }
+    
+    /**
+     * Graba la partida en un diario binario para reproducirla con ReproductorPartida
+     */
+    public void setArchivoDiario(Path archivoDiario) {
+        this.archivoDiario = archivoDiario;
+    }
+    
+    /**
+     * Métricas donde se anotan los tiempos y contadores de cada turno; se pueden
+     * compartir entre varias partidas para acumular
+     */
+    public void setMetricas(MetricasJuego metricas) {
+        this.metricas = metricas;
+    }
+    
+    /**
+     * Guarda un punto de control cada tantos turnos, siempre en el mismo archivo
+     */
+    public void setPuntoControl(Path archivo, int cadaTurnos) {
+        if (cadaTurnos <= 0) {
+            throw new IllegalArgumentException("La cantidad de turnos entre puntos de control debe ser positiva: " + cadaTurnos);
+        }
+        this.archivoPuntoControl = archivo;
+        this.turnosEntrePuntosControl = cadaTurnos;
+    }
+    
+    /**
+     * Crea una partida a partir de un punto de control; se juega con jugarSinConsola()
+     * y continúa en el turno siguiente al guardado, con la configuración guardada
+     */
+    public static MatrixGame reanudar(Path archivo) throws IOException {
+        PuntoControl punto = PuntoControl.cargar(archivo);
+        MatrixGame juego = new MatrixGame(punto.getAncho(), punto.getAlto());
+        juego.restaurar(punto);
+        return juego;
+    }
+    
+    /**
+     * Guarda el estado completo de la partida. Debe llamarse entre dos fases del
+     * turno, con los personajes detenidos (por ejemplo al cerrar la fase de cálculo).
+     */
+    public void guardarPuntoControl(Path archivo) throws IOException {
+        if (escritorPuntoControl == null) {
+            escritorPuntoControl = new EscritorPuntoControl();
+        }
+        escritorPuntoControl.guardar(archivo, mundo, turnoActual, semilla, generador != null ? generador.getEstado() : semilla,
+                getConfiguracion(), neo, ocupacion, telefonos, almacenAgentes);
+    }
+    
+    public int getTurnoActual() {
+        return turnoActual;
+    }
+    
+    public boolean neoEscapo() {
+        return neo.isGano();
     }
     
     public static void main(String[] args) {
-        MatrixGame juego = new MatrixGame();
+        if (args.length > 0 && args[0].equals("--headless")) {
+            SimulacionHeadless.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        // Uso opcional: java matrix.MatrixGame [--ansi] <ancho> <alto> [estrategiaNeo] [semilla]
+        boolean ansi = args.length > 0 && args[0].equals("--ansi");
+        if (ansi) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        MatrixGame juego = args.length >= 2
+                ? new MatrixGame(Integer.parseInt(args[0]), Integer.parseInt(args[1]))
+                : new MatrixGame();
+        if (args.length >= 3) {
+            juego.setEstrategiaNeo(EstrategiaNeo.valueOf(args[2].toUpperCase()));
+        }
+        if (args.length >= 4) {
+            juego.setSemilla(Long.parseLong(args[3]));
+            juego.setResolucionDeterminista(true);
+        }
+        juego.setRenderizadoAnsi(ansi);
+        // Las métricas se pueden consultar con JConsole mientras se juega
+        MetricasJuego metricas = new MetricasJuego();
+        metricas.registrarJmx();
+        juego.setMetricas(metricas);
         juego.iniciar();
     }
     
@@ -39,6 +306,7 @@ public class MatrixGame {
      * Método principal que inicia y controla el juego
      */
     public void iniciar() {
+        scanner = new Scanner(System.in);
         mostrarBienvenida();
  
         configurarJuego();
@@ -52,47 +320,393 @@ public class MatrixGame {
         mostrarResultadoFinal();
         scanner.close();
     }
-
+    
     /**
-     * Inicializa las barreras cíclicas y recrea los personajes con las referencias correctas
+     * Juega una partida completa sin leer ni escribir en consola y sin pausas.
+     * Neo se ubica en una posición libre aleatoria.
      */
-    private void inicializarSistemaConcurrencia() {
-        Map<String, Integer> posicionesReservadas = new ConcurrentHashMap<>();
+    public void jugarSinConsola() {
+        prepararPartida();
+        
+        ejecutarSimulacion();
+    }
+    
+    /**
+     * Genera el mundo a partir de la semilla y deja los personajes listos, sin iniciar hilos
+     */
+    void prepararPartida() {
+        silencioso = true;
+        pausaMs = 0;
+        
+        if (!restaurada) {
+            generador = new GeneradorAleatorio(semilla);
+            int[] posNeo = {generador.siguienteEntero(mundo.getAncho()), generador.siguienteEntero(mundo.getAlto())};
+            generarMundo(posNeo);
+        }
+        
+        inicializarSistemaConcurrencia();
+    }
+    
+    /**
+     * Inicia la partida en modo paso a paso: el hilo que llama participa en ambas
+     * fases del turno y cada llamada a avanzarTurno() ejecuta exactamente un turno.
+     * El monitor queda en un hilo de fondo para cerrar la partida cuando termine.
+     */
+    void iniciarPasoAPaso() {
+        pasoAPaso = true;
+        prepararPartida();
+        
+        // Con el planificador no hay hilos que monitorear: cada turno lo ejecuta quien llama
+        if (modoEjecucion == ModoEjecucion.POOL) {
+            return;
+        }
+        
+        Thread monitor = new Thread(this::ejecutarSimulacion, "monitor-matrix");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+    
+    /**
+     * Ejecuta un turno completo (cálculo y aplicación) en modo paso a paso.
+     * Devuelve false si la partida ya terminó.
+     */
+    boolean avanzarTurno() {
+        if (!neo.isJuegoActivo()) {
+            return false;
+        }
+        if (modoEjecucion == ModoEjecucion.POOL) {
+            planificador.ejecutarTurno();
+            // Sin monitor nadie más cierra el diario cuando termina la partida
+            if (!neo.isJuegoActivo()) {
+                cerrarDiario();
+            }
+            return true;
+        }
+        try {
+            // Una llegada negativa indica que la sincronización ya terminó con la partida
+            int fase = faseObservador.arrive();
+            if (fase < 0 || faseObservador.awaitAdvanceInterruptibly(fase, ESPERA_PASO_MS, TimeUnit.MILLISECONDS) < 0) {
+                return false;
+            }
+            fase = faseObservador.arrive();
+            if (fase < 0) {
+                return false;
+            }
+            faseObservador.awaitAdvanceInterruptibly(fase, ESPERA_PASO_MS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (TimeoutException e) {
+            sincronizacion.terminar();
+            return false;
+        }
+    }
+    
+    /**
+     * Termina la partida desde afuera; el monitor se encarga de detener los hilos
+     */
+    void terminarPartida() {
+        neo.setJuegoActivo(false);
+    }
+    
+    // Acceso para las mediciones de rendimiento (benchmarks)
+    Neo getNeo() {
+        return neo;
+    }
+    
+    AlmacenAgentes getAlmacenAgentes() {
+        return almacenAgentes;
+    }
+    
+    List<Telefono> getTelefonos() {
+        return telefonos;
+    }
+    
+    InstantaneaMundo getInstantanea() {
+        return mundoPublicado.get();
+    }
+    
+    CampoPersecucion getCampoPersecucion() {
+        return campoPersecucion;
+    }
+    
+    CampoAmenaza getCampoAmenaza() {
+        return campoAmenaza;
+    }
+    
+    /**
+     * Tiempo que llevó crear e iniciar los hilos de todos los personajes en la última partida
+     */
+    long getNanosCreacionHilos() {
+        return nanosCreacionHilos;
+    }
+    
+    /**
+     * Tiempo desde que arrancaron los personajes hasta que se cerró el último turno
+     */
+    long getNanosTurnos() {
+        return nanosTurnos;
+    }
 
-        int numParticipantes = 1 + agentes.size();
+    /**
+     * Reconstruye el mundo y los personajes guardados en el punto de control
+     */
+    private void restaurar(PuntoControl punto) {
+        setConfiguracion(punto.getConfiguracion());
+        semilla = punto.getSemilla();
+        generador = new GeneradorAleatorio(semilla);
+        generador.setEstado(punto.getEstadoGenerador());
+        turnoActual = punto.getTurno();
         
-        barreraCalculo = new CyclicBarrier(numParticipantes, () -> {
-            System.out.println("\n--- Todos calcularon su movimiento ---");
-        });
+        neo = new Neo(mundo.x(punto.getCeldaNeo()), mundo.y(punto.getCeldaNeo()), telefonos, mundo, ocupacion,
+                    null, lockTablero);
+        neo.setVivo(punto.isNeoVivo());
+        neo.setGano(punto.isNeoGano());
         
-        barreraAplicacion = new CyclicBarrier(numParticipantes, () -> {
-            posicionesReservadas.clear();
-            
-            turnoActual++;
-            System.out.println("--- Todos aplicaron su movimiento ---");
-            System.out.println("\n========== TURNO " + turnoActual + " ==========");
-            imprimirTablero();
-        });
+        for (int i = 0; i < punto.getCantidadMuros(); i++) {
+            int x = mundo.x(punto.celdaMuro(i));
+            int y = mundo.y(punto.celdaMuro(i));
+            muros.add(new Muro(x, y));
+            ocupacion.agregarMuro(x, y);
+        }
+        for (int i = 0; i < punto.getCantidadTelefonos(); i++) {
+            Telefono tel = new Telefono(mundo.x(punto.celdaTelefono(i)), mundo.y(punto.celdaTelefono(i)));
+            tel.setUsado(punto.isTelefonoUsado(i));
+            telefonos.add(tel);
+            if (!tel.isUsado()) {
+                ocupacion.agregarTelefono(tel.getPosX(), tel.getPosY());
+            }
+        }
+        for (int i = 0; i < punto.getCantidadAgentes(); i++) {
+            int x = mundo.x(punto.celdaAgente(i));
+            int y = mundo.y(punto.celdaAgente(i));
+            int indice = almacenAgentes.agregar(punto.idAgente(i), x, y);
+            almacenAgentes.setVivo(indice, punto.isAgenteVivo(i));
+            if (punto.isAgenteVivo(i)) {
+                ocupacion.agregarAgente(x, y);
+            }
+        }
+        restaurada = true;
+    }
 
-        neo = new Neo(neo.getPosX(), neo.getPosY(), telefonos, agentes, muros,
-                    barreraCalculo, barreraAplicacion, lockTablero);
+    /**
+     * Inicializa la sincronización de turnos, recrea a Neo con las referencias correctas
+     * y prepara a los agentes (con un objeto Agente por hilo solo si el modo lo necesita)
+     */
+    private void inicializarSistemaConcurrencia() {
+        reservas = new TablaReservas(mundo);
+        if (componentes == null || componentes.getVersionMuros() != ocupacion.getVersionMuros()) {
+            componentes = new ComponentesConexas(ocupacion);
+        }
+        campoPersecucion = usarCampoPersecucion && !agentesJerarquicos ? new CampoPersecucion(mundo) : null;
+        campoAmenaza = new CampoAmenaza(mundo, nucleoAmenaza);
+        // Los muros ya están todos: la abstracción se arma una sola vez por partida
+        mapaJerarquico = agentesJerarquicos || estrategiaNeo == EstrategiaNeo.JERARQUICO
+                ? new MapaJerarquico(mundo, ocupacion.copiarMuros()) : null;
 
-        for (int i = 0; i < agentes.size(); i++) {
-            Agente agenteViejo = agentes.get(i);
-            Agente agenteNuevo = new Agente(
-                agenteViejo.getPosX(), 
-                agenteViejo.getPosY(),
-                neo, 
-                agentes, 
-                muros,
-                telefonos,
-                barreraCalculo,
-                barreraAplicacion,
-                lockTablero,
-                posicionesReservadas
-            );
-            agentes.set(i, agenteNuevo);
+        sincronizacion = new SincronizacionTurnos(this::alTerminarCalculo, this::alTerminarAplicacion,
+                () -> !neo.isJuegoActivo());
+        // En modo paso a paso el hilo que llama a avanzarTurno() también es participante
+        faseObservador = pasoAPaso && modoEjecucion != ModoEjecucion.POOL ? sincronizacion.registrar() : null;
+
+        Neo neoAnterior = neo;
+        neo = new Neo(neoAnterior.getPosX(), neoAnterior.getPosY(), telefonos, mundo, ocupacion,
+                    sincronizacion.registrar(), lockTablero);
+        // Una partida restaurada puede traer a Neo ya capturado o a salvo
+        neo.setVivo(neoAnterior.isVivo());
+        neo.setGano(neoAnterior.isGano());
+        if (!neo.isVivo() || neo.isGano()) {
+            neo.setJuegoActivo(false);
         }
+        neo.setEstrategia(estrategiaNeo);
+        neo.setNucleoAmenaza(nucleoAmenaza);
+        neo.setCampoAmenaza(campoAmenaza);
+        neo.setMapaJerarquico(mapaJerarquico);
+        neo.setComponentes(componentes);
+        neo.setPausaMs(pausaMs);
+        neo.setSilencioso(silencioso || renderizadoAnsi);
+
+        // Ranura 0 para Neo y 1..n para los agentes, en el orden del almacén
+        posiciones = new PosicionesTurno(mundo, almacenAgentes.getCantidad() + 1);
+        neo.setPosiciones(posiciones, 0);
+        almacenAgentes.preparar(neo, campoPersecucion, reservas, posiciones, lockTablero, resuelveEnOrden());
+
+        // En modo POOL el planificador recorre el almacén por rangos: no hace falta un objeto por agente
+        agentes = new ArrayList<>();
+        if (modoEjecucion != ModoEjecucion.POOL) {
+            for (int i = 0; i < almacenAgentes.getCantidad(); i++) {
+                Agente agente = new Agente(almacenAgentes, i, neo, sincronizacion.registrar());
+                agente.setPausaMs(pausaMs);
+                agente.setSilencioso(silencioso || renderizadoAnsi);
+                agentes.add(agente);
+            }
+        }
+        planificador = new PlanificadorTurnos(neo, almacenAgentes, this::alTerminarCalculo, this::alTerminarAplicacion);
+        
+        eventos = new BusEventos(nivelEventosEfectivo());
+        renderizador = new RenderizadorTablero(mundo, renderizadoAnsi, eventos);
+        renderizador.setMetricas(metricas);
+        mundoPublicado = new AtomicReference<>();
+        publicarInstantanea();
+        neo.setMundoPublicado(mundoPublicado);
+        neo.setEventos(eventos);
+        neo.setMetricas(metricas);
+        almacenAgentes.setMundoPublicado(mundoPublicado);
+        almacenAgentes.setEventos(eventos);
+        almacenAgentes.setMetricas(metricas);
+        almacenAgentes.setMapaJerarquico(agentesJerarquicos ? mapaJerarquico : null);
+        almacenAgentes.setComponentes(componentes);
+        for (Agente agente : agentes) {
+            agente.setMetricas(metricas);
+        }
+        actualizarCampos();
+        abrirDiario();
+    }
+    
+    private void abrirDiario() {
+        if (archivoDiario == null) {
+            return;
+        }
+        try {
+            diario = new DiarioPartida(archivoDiario);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el diario " + archivoDiario, e);
+        }
+        diario.comenzar(mundo, turnoActual, muros, telefonos, posiciones);
+    }
+    
+    /**
+     * Registra cómo terminó la partida y cierra el diario
+     */
+    private void cerrarDiario() {
+        if (diario == null) {
+            return;
+        }
+        int celdaNeo = posiciones.celda(0);
+        if (neo.isGano()) {
+            diario.registrarTelefono(celdaNeo);
+        } else if (!neo.isVivo()) {
+            // El captor es el agente que quedó sobre Neo (el de menor id si hay varios)
+            for (int ranura = 1; ranura < posiciones.getRanuras(); ranura++) {
+                if (posiciones.celda(ranura) == celdaNeo) {
+                    diario.registrarCaptura(ranura, celdaNeo);
+                    break;
+                }
+            }
+        }
+        try {
+            diario.cerrar(turnoActual);
+        } catch (IOException e) {
+            System.out.println("No se pudo cerrar el diario: " + e.getMessage());
+        }
+        diario = null;
+    }
+    
+    /**
+     * Se ejecuta una sola vez cuando todos calcularon su movimiento y antes de aplicarlo
+     */
+    private void alTerminarCalculo() {
+        // Aquí el turno anterior ya se verificó y todavía nadie se movió: el estado está completo
+        if (archivoPuntoControl != null && turnoActual % turnosEntrePuntosControl == 0) {
+            try {
+                guardarPuntoControl(archivoPuntoControl);
+            } catch (IOException e) {
+                System.out.println("No se pudo guardar el punto de control: " + e.getMessage());
+            }
+        }
+        almacenAgentes.cerrarCalculo(mundoPublicado.get());
+        if (resuelveEnOrden()) {
+            almacenAgentes.resolver(0, almacenAgentes.getCantidad());
+        }
+        if (!renderizadoAnsi) {
+            mostrar("\n--- Todos calcularon su movimiento ---");
+        }
+    }
+    
+    /**
+     * En modo POOL el planificador ya es un coordinador que espera el fin del cálculo:
+     * resolver ahí, en una pasada por id, no cuesta paralelismo y quita la carrera por las celdas
+     */
+    private boolean resuelveEnOrden() {
+        return resolucionDeterminista || modoEjecucion == ModoEjecucion.POOL;
+    }
+    
+    /**
+     * Se ejecuta una sola vez cuando todos aplicaron su movimiento: cierra el turno
+     */
+    private void alTerminarAplicacion() {
+        publicarPosiciones();
+        reservas.nuevoTurno();
+        
+        turnoActual++;
+        nanosTurnos = System.nanoTime() - inicioTurnos;
+        if (metricas != null) {
+            metricas.registrarTurno();
+        }
+        if (diario != null) {
+            diario.cerrarTurno(turnoActual, posiciones);
+        }
+        publicarInstantanea();
+        actualizarCampos();
+        if (maxTurnos > 0 && turnoActual >= maxTurnos) {
+            neo.setJuegoActivo(false);
+        }
+        if (!silencioso) {
+            // El renderizador dibuja después, en su hilo: la instantánea no cambia, así que no hace falta copiarla
+            renderizador.publicar(mundoPublicado.get());
+        }
+    }
+    
+    /**
+     * Lleva al índice de ocupación (y al diario, si se graba) los movimientos de los
+     * agentes y publica las posiciones del turno. Corre al cerrar la fase de aplicación, con todos detenidos.
+     */
+    private void publicarPosiciones() {
+        if (diario != null) {
+            diario.registrarTurno(turnoActual + 1);
+            if (posiciones.celda(0) != posiciones.celdaSiguiente(0)) {
+                diario.registrarMovimiento(0, posiciones.celdaSiguiente(0));
+            }
+        }
+        for (int ranura = 1; ranura < posiciones.getRanuras(); ranura++) {
+            int desde = posiciones.celda(ranura);
+            int hasta = posiciones.celdaSiguiente(ranura);
+            if (desde != hasta) {
+                ocupacion.moverAgente(mundo.x(desde), mundo.y(desde), mundo.x(hasta), mundo.y(hasta));
+                if (diario != null) {
+                    diario.registrarMovimiento(ranura, hasta);
+                }
+            }
+        }
+        posiciones.intercambiar();
+    }
+    
+    /**
+     * Publica la instantánea del turno que acaba de cerrarse para los buscadores de caminos
+     */
+    private void publicarInstantanea() {
+        mundoPublicado.set(InstantaneaMundo.tomar(turnoActual, ocupacion, posiciones, almacenAgentes,
+                neo.isVivo(), telefonos, mundoPublicado.get()));
+    }
+    
+    /**
+     * Recalcula una sola vez por turno el campo de distancias hacia Neo, que comparten
+     * todos los agentes, y los costos de amenaza que lee Neo
+     */
+    private void actualizarCampos() {
+        InstantaneaMundo vista = mundoPublicado.get();
+        if (!vista.estaVivo(0)) {
+            return;
+        }
+        if (campoPersecucion != null) {
+            campoPersecucion.calcular(vista);
+            // La BFS del campo reemplaza las de cada agente, así que se cuenta como suya
+            if (metricas != null) {
+                metricas.sumarNodosBfsAgentes(campoPersecucion.getNodosExpandidos());
+            }
+        }
+        campoAmenaza.calcular(vista);
     }
 
     /**
@@ -107,49 +721,131 @@ public class MatrixGame {
     }
 
     /**
-     * Ejecuta la simulación del juego iniciando y coordinando todos los hilos
+     * Ejecuta la simulación en el modo elegido; mientras dura, el renderizador dibuja los turnos
      */
     private void ejecutarSimulacion() {
+        eventos.iniciar();
+        if (!silencioso) {
+            renderizador.iniciar();
+        }
+        try {
+            if (modoEjecucion == ModoEjecucion.POOL) {
+                ejecutarConPlanificador();
+            } else {
+                ejecutarConHilos();
+            }
+        } finally {
+            cerrarDiario();
+            cerrarSalida();
+        }
+    }
+    
+    /**
+     * En modo ANSI los mensajes desplazarían el tablero, así que la bitácora se apaga
+     */
+    private NivelEventos nivelEventosEfectivo() {
+        if (renderizadoAnsi) {
+            return NivelEventos.APAGADO;
+        }
+        if (nivelEventos != null) {
+            return nivelEventos;
+        }
+        return silencioso ? NivelEventos.APAGADO : NivelEventos.MOVIMIENTOS;
+    }
+    
+    /**
+     * Espera a que se dibujen los turnos y se escriban los eventos pendientes antes de mostrar el resultado
+     */
+    private void cerrarSalida() {
+        try {
+            if (!silencioso) {
+                renderizador.cerrar();
+            }
+            eventos.cerrar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (renderizador.getCuadrosDescartados() > 0) {
+            System.out.println("(Se omitieron " + renderizador.getCuadrosDescartados()
+                    + " turnos que la consola no alcanzó a dibujar)");
+        }
+    }
+
+    /**
+     * Inicia un hilo por personaje y espera a que la partida termine
+     */
+    private void ejecutarConHilos() {
         // Iniciar los hilos
-        Thread hiloNeo = new Thread(neo);
-        List<Thread> hilosAgentes = new ArrayList<>();
+        long inicio = System.nanoTime();
+        Thread hiloNeo = crearHilo(neo);
+        List<Thread> hilosAgentes = new ArrayList<>(agentes.size());
         
         hiloNeo.start();
         
         for (Agente agente : agentes) {
-            Thread hiloAgente = new Thread(agente);
+            Thread hiloAgente = crearHilo(agente);
             hilosAgentes.add(hiloAgente);
             hiloAgente.start();
         }
+        inicioTurnos = System.nanoTime();
+        nanosCreacionHilos = inicioTurnos - inicio;
         
         try {
             monitorerarJuego(hiloNeo, hilosAgentes);
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             System.out.println("El juego fue interrumpido");
         } catch (Exception e) {
             System.out.println("Error en la ejecución del juego: " + e.getMessage());
         }
     }
 
+    /**
+     * Crea el hilo de un personaje: virtual o de plataforma según el modo de ejecución
+     */
+    private Thread crearHilo(Persona persona) {
+        if (modoEjecucion == ModoEjecucion.VIRTUALES) {
+            return Thread.ofVirtual().name(persona.getNombre()).unstarted(persona);
+        }
+        return new Thread(persona, persona.getNombre());
+    }
+
+    /**
+     * Ejecuta la simulación turno a turno con el planificador, sin un hilo por personaje
+     */
+    private void ejecutarConPlanificador() {
+        inicioTurnos = System.nanoTime();
+        try {
+            while (neo.participa()) {
+                planificador.ejecutarTurno();
+                
+                if (!neo.isJuegoActivo()) break;
+                
+                if (pausaMs > 0) {
+                    Thread.sleep(pausaMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("El juego fue interrumpido");
+        }
+    }
+
     /**
      * Monitorea el estado del juego y maneja la finalización de los hilos
      */
     private void monitorerarJuego(Thread hiloNeo, List<Thread> hilosAgentes) 
             throws InterruptedException {
-        while (neo.isVivo() && !neo.isGano()) {
-            Thread.sleep(100);
-        }
+        neo.esperarFinDelJuego();
         
-        Thread.sleep(1000);
-
-        barreraCalculo.reset();
-        barreraAplicacion.reset();
-
-        hiloNeo.interrupt();
-        for (Thread hilo : hilosAgentes) {
-            hilo.interrupt();
+        // Da tiempo a que se impriman los últimos mensajes; sin consola no hace falta
+        if (!silencioso) {
+            Thread.sleep(1000);
         }
 
+        // Quien siga esperando un turno sale enseguida y se da de baja; no hace falta interrumpir
+        sincronizacion.terminar();
+
         hiloNeo.join(1000);
         for (Thread hilo : hilosAgentes) {
             hilo.join(500);
@@ -162,8 +858,23 @@ public class MatrixGame {
     private void configurarJuego() {
         System.out.println("\n=== CONFIGURACIÓN DE NEO ===");
         int[] posNeo = pedirPosicion("Neo");
-        neo = new Neo(posNeo[0], posNeo[1], telefonos, agentes, muros,
-                    barreraCalculo, barreraAplicacion, lockTablero);
+        generador = new GeneradorAleatorio(semilla);
+        generarMundo(posNeo);
+        
+        System.out.println("\nConfiguración completada");
+        System.out.println("  - Neo: (" + neo.getPosX() + ", " + neo.getPosY() + ")");
+        System.out.println("  - Teléfono(s): " + telefonos.size());
+        System.out.println("  - Muros: " + muros.size());
+        System.out.println("  - Agentes: " + almacenAgentes.getCantidad());
+        System.out.println("  - Semilla: " + semilla);
+    }
+    
+    /**
+     * Ubica a Neo y genera teléfonos, muros y agentes a su alrededor
+     */
+    private void generarMundo(int[] posNeo) {
+        neo = new Neo(posNeo[0], posNeo[1], telefonos, mundo, ocupacion,
+                    null, lockTablero);
         
         List<int[]> posicionesOcupadas = new ArrayList<>();
         posicionesOcupadas.add(posNeo);
@@ -171,14 +882,9 @@ public class MatrixGame {
         generarTelefonosAleatorios(posicionesOcupadas);
 
         generarMurosAleatorios();
+        repararConectividad();
 
         generarAgentesAleatorios();
-        
-        System.out.println("\nConfiguración completada");
-        System.out.println("  - Neo: (" + neo.getPosX() + ", " + neo.getPosY() + ")");
-        System.out.println("  - Teléfono(s): " + telefonos.size());
-        System.out.println("  - Muros: " + muros.size());
-        System.out.println("  - Agentes: " + agentes.size());
     }
     
     /**
@@ -186,20 +892,22 @@ public class MatrixGame {
      */
     private int[] pedirPosicion(String elemento) {
         int x, y;
+        int maxX = mundo.getAncho() - 1;
+        int maxY = mundo.getAlto() - 1;
         while (true) {
             try {
-                System.out.print("Ingresa la posición X de " + elemento + " (0-9): ");
+                System.out.print("Ingresa la posición X de " + elemento + " (0-" + maxX + "): ");
                 x = Integer.parseInt(scanner.nextLine());
-                System.out.print("Ingresa la posición Y de " + elemento + " (0-9): ");
+                System.out.print("Ingresa la posición Y de " + elemento + " (0-" + maxY + "): ");
                 y = Integer.parseInt(scanner.nextLine());
                 
-                if (x >= 0 && x < TAMANIO && y >= 0 && y < TAMANIO) {
+                if (mundo.contiene(x, y)) {
                     return new int[]{x, y};
                 } else {
                     System.out.println("Posición fuera de rango. Intenta de nuevo.");
                 }
             } catch (NumberFormatException e) {
-                System.out.println("Entrada inválida. Ingresa números entre 0 y 9.");
+                System.out.println("Entrada inválida. Ingresa números entre 0 y " + Math.max(maxX, maxY) + ".");
             }
         }
     }
@@ -235,18 +943,17 @@ public class MatrixGame {
      * Genera teléfonos en posiciones aleatorias
      */
     private void generarTelefonosAleatorios(List<int[]> posicionesOcupadas) {
-        Random rand = new Random();
-        int cantidadTelefonos = rand.nextInt(2) + 1;
+        int cantidadTelefonos = generador.siguienteEntero(maxTelefonos) + 1;
         
-        System.out.println("Cantidad de teléfonos a generar: " + cantidadTelefonos);
+        mostrar("Cantidad de teléfonos a generar: " + cantidadTelefonos);
         
         int telefonosGenerados = 0;
         int intentos = 0;
-        int maxIntentos = 100;
+        int maxIntentos = maxIntentos(cantidadTelefonos);
         
         while (telefonosGenerados < cantidadTelefonos && intentos < maxIntentos) {
-            int x = rand.nextInt(TAMANIO);
-            int y = rand.nextInt(TAMANIO);
+            int x = generador.siguienteEntero(mundo.getAncho());
+            int y = generador.siguienteEntero(mundo.getAlto());
             
             // Verifica que la posición no esté ocupada
             boolean ocupada = false;
@@ -258,15 +965,16 @@ public class MatrixGame {
             }
             if (!ocupada) {
                 telefonos.add(new Telefono(x, y));
+                ocupacion.agregarTelefono(x, y);
                 posicionesOcupadas.add(new int[]{x, y});
-                System.out.println("  Teléfono " + (telefonosGenerados + 1) + " en (" + x + ", " + y + ")");
+                mostrar("  Teléfono " + (telefonosGenerados + 1) + " en (" + x + ", " + y + ")");
                 telefonosGenerados++;
             }
             
             intentos++;
         }
         if (telefonosGenerados < cantidadTelefonos) {
-            System.out.println("Advertencia: Solo se pudieron generar " + telefonosGenerados + " teléfonos");
+            mostrar("Advertencia: Solo se pudieron generar " + telefonosGenerados + " teléfonos");
         }
     }
     
@@ -274,56 +982,110 @@ public class MatrixGame {
      * Genera muros en posiciones aleatorias
      */
     private void generarMurosAleatorios() {
-        Random rand = new Random();
-        int cantidadMuros = rand.nextInt(MAX_MUROS) + 1; 
+        int cantidadMuros = generador.siguienteEntero(maxMuros) + 1; 
         
-        System.out.println("Cantidad de muros a generar: " + cantidadMuros);
+        mostrar("Cantidad de muros a generar: " + cantidadMuros);
         
         int murosGenerados = 0;
         int intentos = 0;
-        int maxIntentos = 100;
+        int maxIntentos = maxIntentos(cantidadMuros);
         
         while (murosGenerados < cantidadMuros && intentos < maxIntentos) {
-            int x = rand.nextInt(TAMANIO);
-            int y = rand.nextInt(TAMANIO);
+            int x = generador.siguienteEntero(mundo.getAncho());
+            int y = generador.siguienteEntero(mundo.getAlto());
             
             if (!posicionOcupada(x, y)) {
                 muros.add(new Muro(x, y));
-                System.out.println("  Muro " + (murosGenerados + 1) + " en (" + x + ", " + y + ")");
+                ocupacion.agregarMuro(x, y);
+                mostrar("  Muro " + (murosGenerados + 1) + " en (" + x + ", " + y + ")");
                 murosGenerados++;
             }
             intentos++;
         }
     }
     
+    /**
+     * Si los muros dejaron a Neo sin ningún teléfono alcanzable, abre un pasillo en L
+     * hasta el teléfono más cercano quitando los muros del camino. No usa el generador,
+     * así que los mundos que ya estaban conectados no cambian.
+     */
+    private void repararConectividad() {
+        componentes = new ComponentesConexas(ocupacion);
+        int celdaNeo = mundo.indice(neo.getPosX(), neo.getPosY());
+        Telefono masCercano = null;
+        int distanciaMinima = Integer.MAX_VALUE;
+        for (Telefono tel : telefonos) {
+            if (componentes.conectadas(celdaNeo, mundo.indice(tel.getPosX(), tel.getPosY()))) {
+                return;
+            }
+            int distancia = Math.abs(tel.getPosX() - neo.getPosX()) + Math.abs(tel.getPosY() - neo.getPosY());
+            if (distancia < distanciaMinima) {
+                distanciaMinima = distancia;
+                masCercano = tel;
+            }
+        }
+        if (masCercano == null) {
+            return;
+        }
+
+        int x = neo.getPosX();
+        int y = neo.getPosY();
+        while (x != masCercano.getPosX() || y != masCercano.getPosY()) {
+            if (x != masCercano.getPosX()) {
+                x += Integer.signum(masCercano.getPosX() - x);
+            } else {
+                y += Integer.signum(masCercano.getPosY() - y);
+            }
+            if (ocupacion.hayMuro(x, y)) {
+                ocupacion.quitarMuro(x, y);
+            }
+        }
+        muros.removeIf(muro -> !ocupacion.hayMuro(muro.getPosX(), muro.getPosY()));
+        mostrar("Ningún teléfono era alcanzable: se abrió un pasillo hasta (" + masCercano.getPosX()
+                + ", " + masCercano.getPosY() + ")");
+        componentes = new ComponentesConexas(ocupacion);
+    }
+    
     /**
      * Genera agentes en posiciones aleatorias
      */
     private void generarAgentesAleatorios() {
-        Random rand = new Random();
-        int cantidadAgentes = 4;
-        
-        System.out.println("Cantidad de agentes a generar: " + cantidadAgentes);
+        mostrar("Cantidad de agentes a generar: " + cantidadAgentes);
         
         int agentesGenerados = 0;
         int intentos = 0;
-        int maxIntentos = 100;
+        int maxIntentos = maxIntentos(cantidadAgentes);
         
         while (agentesGenerados < cantidadAgentes && intentos < maxIntentos) {
-            int x = rand.nextInt(TAMANIO);
-            int y = rand.nextInt(TAMANIO);
+            int x = generador.siguienteEntero(mundo.getAncho());
+            int y = generador.siguienteEntero(mundo.getAlto());
             
             if (!posicionOcupada(x, y)) {
-                Agente agente = new Agente(x, y, neo, agentes, muros, telefonos,
-                                      null, null, lockTablero, null);
-            agentes.add(agente);
-                System.out.println("  Agente-" + (agentesGenerados + 1) + " en (" + x + ", " + y + ")");
+                almacenAgentes.agregar(agentesGenerados + 1, x, y);
+                ocupacion.agregarAgente(x, y);
+                mostrar("  Agente-" + (agentesGenerados + 1) + " en (" + x + ", " + y + ")");
                 agentesGenerados++;
             }
             intentos++;
         }
     }
     
+    /**
+     * Intentos de ubicación aleatoria; crece con la cantidad pedida para tableros grandes
+     */
+    private int maxIntentos(int cantidad) {
+        return Math.max(100, cantidad * 10);
+    }
+    
+    /**
+     * Muestra un mensaje por consola salvo en modo silencioso
+     */
+    private void mostrar(String mensaje) {
+        if (!silencioso) {
+            System.out.println(mensaje);
+        }
+    }
+    
     /**
      * Verifica si una posición está ocupada
      */
@@ -331,77 +1093,15 @@ public class MatrixGame {
         if (neo != null && neo.getPosX() == x && neo.getPosY() == y) {
             return true;
         }
-      
-        for (Telefono tel : telefonos) {
-            if (tel.getPosX() == x && tel.getPosY() == y) {
-                return true;
-            }
-        }
-
-        for (Muro muro : muros) {
-            if (muro.getPosX() == x && muro.getPosY() == y) {
-                return true;
-            }
-        }
-
-        for (Agente agente : agentes) {
-            if (agente.getPosX() == x && agente.getPosY() == y) {
-                return true;
-            }
-        }
         
-        return false;
+        return ocupacion.ocupada(x, y);
     }
     
     /**
      * Imprime el tablero actual en consola
      */
-    private void imprimirTablero() {
-        // Limpiar tablero
-        for (int i = 0; i < TAMANIO; i++) {
-            Arrays.fill(tablero[i], '.');
-        }
-        
-        // Colocar teléfonos - CAMBIO: [y][x] en lugar de [x][y]
-        for (Telefono tel : telefonos) {
-            if (!tel.isUsado()) {
-                tablero[tel.getPosY()][tel.getPosX()] = tel.getSimbolo();
-            }
-        }
-        
-        // Colocar muros - CAMBIO: [y][x]
-        for (Muro muro : muros) {
-            tablero[muro.getPosY()][muro.getPosX()] = muro.getSimbolo();
-        }
-        
-        // Colocar Neo PRIMERO (si está vivo) - CAMBIO: [y][x]
-        if (neo.isVivo()) {
-            tablero[neo.getPosY()][neo.getPosX()] = neo.getSimbolo();
-        }
-        
-        // Colocar agentes AL FINAL - CAMBIO: [y][x]
-        for (Agente agente : agentes) {
-            if (agente.isVivo()) {
-                tablero[agente.getPosY()][agente.getPosX()] = agente.getSimbolo();
-            }
-        }
-        
-        // Imprimir tablero con formato
-        System.out.println("\n    0 1 2 3 4 5 6 7 8 9");
-        System.out.println("  ┌─────────────────────┐");
-        
-        for (int i = 0; i < TAMANIO; i++) {
-            System.out.print(i + " │ ");
-            for (int j = 0; j < TAMANIO; j++) {
-                System.out.print(tablero[i][j] + " ");
-            }
-            System.out.println("│");
-        }
-        
-        System.out.println("  └─────────────────────┘");
-        
-        // Leyenda
-        System.out.println("\nLeyenda: N=Neo | A=Agente | T=Teléfono | M=Muro | .=Vacío");
+    void imprimirTablero() {
+        renderizador.dibujar(mundoPublicado.get());
     }
     
     /**
@@ -428,6 +1128,7 @@ public class MatrixGame {
         System.out.println("Estadísticas:");
         System.out.println("Turnos jugados: " + String.format("%-19d", turnoActual));
         System.out.println("Agentes activos: " + String.format("%-18d", contarAgentesVivos()));
+        System.out.println("Nodos expandidos por Neo (" + neo.getEstrategia() + "): " + neo.getNodosExpandidosTotales());
         
         System.out.println("Gracias por jugar. ¡Hasta la próxima!");
     }
@@ -436,12 +1137,6 @@ public class MatrixGame {
      * Cuenta cuántos agentes siguen vivos
      */
     private int contarAgentesVivos() {
-        int vivos = 0;
-        for (Agente agente : agentes) {
-            if (agente.isVivo()) {
-                vivos++;
-            }
-        }
-        return vivos;
+        return almacenAgentes.contarVivos();
     }
 }
@@ -0,0 +1,198 @@
+package matrix;
+
+import java.lang.management.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+/**
+ * Contadores e histogramas de rendimiento de los turnos, compartidos por todos los
+ * personajes y expuestos por JMX. Se anotan con LongAdder para que los hilos no
+ * compitan por la misma línea de caché; sin métricas asignadas el juego no mide nada.
+ *
+ * En modo POOL no hay esperas por personaje en el Phaser, así que esos
+ * histogramas quedan vacíos.
+ */
+public class MetricasJuego implements MetricasJuegoMBean {
+    public static final String NOMBRE_JMX = "matrix:type=MetricasJuego";
+
+    private final HistogramaTiempos calculo;
+    private final HistogramaTiempos esperaCalculo;
+    private final HistogramaTiempos esperaAplicacion;
+    private final HistogramaTiempos renderizado;
+    private final LongAdder turnos;
+    private final LongAdder nodosBfsAgentes;
+    private final LongAdder nodosBusquedaNeo;
+    private final LongAdder conflictosReserva;
+    private volatile long inicio;
+
+    public MetricasJuego() {
+        this.calculo = new HistogramaTiempos();
+        this.esperaCalculo = new HistogramaTiempos();
+        this.esperaAplicacion = new HistogramaTiempos();
+        this.renderizado = new HistogramaTiempos();
+        this.turnos = new LongAdder();
+        this.nodosBfsAgentes = new LongAdder();
+        this.nodosBusquedaNeo = new LongAdder();
+        this.conflictosReserva = new LongAdder();
+        this.inicio = System.nanoTime();
+    }
+
+    /**
+     * Registra las métricas en el servidor JMX de la plataforma, reemplazando las anteriores si había
+     */
+    public void registrarJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (servidor.isRegistered(nombre)) {
+                servidor.unregisterMBean(nombre);
+            }
+            servidor.registerMBean(this, nombre);
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron registrar las métricas en JMX", e);
+        }
+    }
+
+    // Anotaciones desde el juego
+    public void registrarCalculo(long nanos) {
+        calculo.registrar(nanos);
+    }
+
+    public void registrarEspera(boolean trasCalculo, long nanos) {
+        (trasCalculo ? esperaCalculo : esperaAplicacion).registrar(nanos);
+    }
+
+    public void registrarRenderizado(long nanos) {
+        renderizado.registrar(nanos);
+    }
+
+    public void registrarTurno() {
+        turnos.increment();
+    }
+
+    public void sumarNodosBfsAgentes(long nodos) {
+        nodosBfsAgentes.add(nodos);
+    }
+
+    public void sumarNodosBusquedaNeo(long nodos) {
+        nodosBusquedaNeo.add(nodos);
+    }
+
+    public void sumarConflictoReserva() {
+        conflictosReserva.increment();
+    }
+
+    // Lecturas para JMX
+    @Override
+    public long getTurnos() {
+        return turnos.sum();
+    }
+
+    @Override
+    public double getTurnosPorSegundo() {
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        return segundos <= 0 ? 0 : turnos.sum() / segundos;
+    }
+
+    @Override
+    public long getCalculos() {
+        return calculo.getCantidad();
+    }
+
+    @Override
+    public double getCalculoPromedioMicros() {
+        return calculo.getPromedioNanos() / 1e3;
+    }
+
+    @Override
+    public double getCalculoP99Micros() {
+        return calculo.percentilNanos(99) / 1e3;
+    }
+
+    @Override
+    public double getCalculoMaximoMicros() {
+        return calculo.getMaximoNanos() / 1e3;
+    }
+
+    @Override
+    public double getEsperaCalculoPromedioMicros() {
+        return esperaCalculo.getPromedioNanos() / 1e3;
+    }
+
+    @Override
+    public double getEsperaCalculoP99Micros() {
+        return esperaCalculo.percentilNanos(99) / 1e3;
+    }
+
+    @Override
+    public double getEsperaAplicacionPromedioMicros() {
+        return esperaAplicacion.getPromedioNanos() / 1e3;
+    }
+
+    @Override
+    public double getEsperaAplicacionP99Micros() {
+        return esperaAplicacion.percentilNanos(99) / 1e3;
+    }
+
+    @Override
+    public long getNodosBfsAgentes() {
+        return nodosBfsAgentes.sum();
+    }
+
+    @Override
+    public long getNodosBusquedaNeo() {
+        return nodosBusquedaNeo.sum();
+    }
+
+    @Override
+    public long getConflictosReserva() {
+        return conflictosReserva.sum();
+    }
+
+    @Override
+    public double getRenderizadoPromedioMicros() {
+        return renderizado.getPromedioNanos() / 1e3;
+    }
+
+    @Override
+    public double getRenderizadoP99Micros() {
+        return renderizado.percentilNanos(99) / 1e3;
+    }
+
+    /**
+     * Resumen en texto para el volcado periódico del modo sin consola
+     */
+    @Override
+    public String getResumen() {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format("Turnos: %d (%.1f por segundo)%n", getTurnos(), getTurnosPorSegundo()));
+        agregarHistograma(texto, "Cálculo por personaje", calculo);
+        agregarHistograma(texto, "Espera al cerrar el cálculo", esperaCalculo);
+        agregarHistograma(texto, "Espera al cerrar la aplicación", esperaAplicacion);
+        agregarHistograma(texto, "Dibujo del tablero", renderizado);
+        texto.append(String.format("Nodos expandidos: BFS de agentes %d | búsqueda de Neo %d%n",
+                getNodosBfsAgentes(), getNodosBusquedaNeo()));
+        texto.append(String.format("Conflictos de reserva: %d%n", getConflictosReserva()));
+        return texto.toString();
+    }
+
+    private static void agregarHistograma(StringBuilder texto, String nombre, HistogramaTiempos histograma) {
+        texto.append(String.format("%-32s n=%-10d prom=%9.1f µs  p50<=%9.1f µs  p99<=%9.1f µs  max=%9.1f µs%n",
+                nombre, histograma.getCantidad(), histograma.getPromedioNanos() / 1e3,
+                histograma.percentilNanos(50) / 1e3, histograma.percentilNanos(99) / 1e3,
+                histograma.getMaximoNanos() / 1e3));
+    }
+
+    @Override
+    public void reiniciar() {
+        calculo.reiniciar();
+        esperaCalculo.reiniciar();
+        esperaAplicacion.reiniciar();
+        renderizado.reiniciar();
+        turnos.reset();
+        nodosBfsAgentes.reset();
+        nodosBusquedaNeo.reset();
+        conflictosReserva.reset();
+        inicio = System.nanoTime();
+    }
+}
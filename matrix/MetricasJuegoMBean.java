@@ -0,0 +1,41 @@
+package matrix;
+
+/**
+ * Interfaz JMX de las métricas del juego (se ven en JConsole o VisualVM bajo matrix:type=MetricasJuego).
+ * Los tiempos se expresan en microsegundos.
+ */
+public interface MetricasJuegoMBean {
+    long getTurnos();
+
+    double getTurnosPorSegundo();
+
+    long getCalculos();
+
+    double getCalculoPromedioMicros();
+
+    double getCalculoP99Micros();
+
+    double getCalculoMaximoMicros();
+
+    double getEsperaCalculoPromedioMicros();
+
+    double getEsperaCalculoP99Micros();
+
+    double getEsperaAplicacionPromedioMicros();
+
+    double getEsperaAplicacionP99Micros();
+
+    long getNodosBfsAgentes();
+
+    long getNodosBusquedaNeo();
+
+    long getConflictosReserva();
+
+    double getRenderizadoPromedioMicros();
+
+    double getRenderizadoP99Micros();
+
+    String getResumen();
+
+    void reiniciar();
+}
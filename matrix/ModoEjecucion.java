@@ -0,0 +1,16 @@
+package matrix;
+
+/**
+ * Formas de ejecutar los turnos de una partida
+ */
+public enum ModoEjecucion {
+    /** Un hilo de plataforma por personaje, sincronizados por turnos con un Phaser */
+    HILOS,
+    /** Un hilo virtual por personaje, con la misma sincronización que HILOS pero sin costo de pila nativa */
+    VIRTUALES,
+    /**
+     * Un planificador ejecuta cada fase del turno en bloque sobre un ForkJoinPool del tamaño de los núcleos.
+     * Los movimientos se calculan en paralelo y las reservas se resuelven después, en orden de id.
+     */
+    POOL
+}
@@ -0,0 +1,78 @@
+package matrix;
+
+/**
+ * Montículo binario de mínimos sin objetos: cada entrada es un long con la
+ * prioridad en los 32 bits altos y el índice de celda en los 32 bajos.
+ * No admite decrementar claves; las entradas obsoletas se descartan al extraerlas,
+ * como hacía la PriorityQueue&lt;Nodo&gt; original.
+ */
+public class MonticuloBinario {
+    private long[] entradas;
+    private int tamanio;
+
+    public MonticuloBinario(int capacidadInicial) {
+        this.entradas = new long[Math.max(1, capacidadInicial)];
+    }
+
+    /**
+     * Inserta una celda con una prioridad no negativa
+     */
+    public void agregar(int celda, int prioridad) {
+        if (tamanio == entradas.length) {
+            long[] nuevas = new long[entradas.length * 2];
+            System.arraycopy(entradas, 0, nuevas, 0, tamanio);
+            entradas = nuevas;
+        }
+        long entrada = ((long) prioridad << 32) | (celda & 0xFFFFFFFFL);
+        int i = tamanio++;
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (entradas[padre] <= entrada) {
+                break;
+            }
+            entradas[i] = entradas[padre];
+            i = padre;
+        }
+        entradas[i] = entrada;
+    }
+
+    /**
+     * Extrae la celda de menor prioridad
+     */
+    public int sacar() {
+        if (tamanio == 0) {
+            throw new IllegalStateException("El montículo está vacío");
+        }
+        long primera = entradas[0];
+        long ultima = entradas[--tamanio];
+        int i = 0;
+        int mitad = tamanio >>> 1;
+        while (i < mitad) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < tamanio && entradas[hijo + 1] < entradas[hijo]) {
+                hijo++;
+            }
+            if (ultima <= entradas[hijo]) {
+                break;
+            }
+            entradas[i] = entradas[hijo];
+            i = hijo;
+        }
+        if (tamanio > 0) {
+            entradas[i] = ultima;
+        }
+        return (int) primera;
+    }
+
+    public boolean estaVacio() {
+        return tamanio == 0;
+    }
+
+    public int tamanio() {
+        return tamanio;
+    }
+
+    public void limpiar() {
+        tamanio = 0;
+    }
+}
@@ -0,0 +1,82 @@
+package matrix;
+
+/**
+ * Dimensiones del mundo (ancho x alto) compartidas por todos los buscadores de caminos.
+ * Las celdas se codifican como un único entero (y * ancho + x) para poder guardar
+ * cualquier información del tablero en arreglos planos de primitivos.
+ */
+public class Mundo {
+    // Direcciones básicas: izquierda, derecha, arriba, abajo
+    public static final int[] DX = {-1, 1, 0, 0};
+    public static final int[] DY = {0, 0, -1, 1};
+
+    private final int ancho;
+    private final int alto;
+    private final int celdas;
+
+    public Mundo(int ancho, int alto) {
+        if (ancho <= 0 || alto <= 0) {
+            throw new IllegalArgumentException("Las dimensiones deben ser positivas: " + ancho + "x" + alto);
+        }
+        if ((long) ancho * alto > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tablero demasiado grande: " + ancho + "x" + alto);
+        }
+        this.ancho = ancho;
+        this.alto = alto;
+        this.celdas = ancho * alto;
+    }
+
+    // Getters
+    public int getAncho() {
+        return ancho;
+    }
+
+    public int getAlto() {
+        return alto;
+    }
+
+    public int getCeldas() {
+        return celdas;
+    }
+
+    /**
+     * Verifica si una posición está dentro de los límites del tablero
+     */
+    public boolean contiene(int x, int y) {
+        return x >= 0 && x < ancho && y >= 0 && y < alto;
+    }
+
+    /**
+     * Codifica una posición (x, y) como índice de celda
+     */
+    public int indice(int x, int y) {
+        return y * ancho + x;
+    }
+
+    public int x(int celda) {
+        return celda % ancho;
+    }
+
+    public int y(int celda) {
+        return celda / ancho;
+    }
+
+    /**
+     * Crea una capa de enteros con una entrada por celda
+     */
+    public int[] nuevaCapaEnteros() {
+        return new int[celdas];
+    }
+
+    /**
+     * Crea una capa de bytes con una entrada por celda
+     */
+    public byte[] nuevaCapaBytes() {
+        return new byte[celdas];
+    }
+
+    @Override
+    public String toString() {
+        return "Mundo " + ancho + "x" + alto;
+    }
+}
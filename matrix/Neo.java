@@ -2,79 +2,182 @@ package matrix;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
 
 public class Neo extends Persona {
+    private static final int SIN_CAMINO = -1;
+    
     private List<Telefono> telefonos;
-    private List<Agente> agentes;
-    private List<Muro> muros;
-    private CyclicBarrier barreraCalculo; 
-    private CyclicBarrier barreraAplicacion;
-    private Object lockTablero;
-    private boolean juegoActivo;
-    private boolean gano;
+    private Mundo mundo;
+    private IndiceOcupacion ocupacion;
+    private EspacioBusqueda espacio;
+    // Solo con la estrategia INCREMENTAL; se crea en el primer turno
+    private PlanificadorIncremental incremental;
+    // Solo con la estrategia JERARQUICO; el mapa se comparte con los agentes
+    private MapaJerarquico mapaJerarquico;
+    private ConsultaJerarquica consultaJerarquica;
+    private int[] celdasTelefonos;
+    // Componentes de las celdas libres: si ningún teléfono está en la de Neo no se busca
+    private ComponentesConexas componentes;
+    // Penalización de los agentes; con campo de amenaza los costos ya vienen calculados para el turno
+    private NucleoAmenaza nucleoAmenaza;
+    private CampoAmenaza campoAmenaza;
+    private Phaser fase;
+    private ReentrantLock lockTablero;
+    private volatile boolean juegoActivo;
+    private volatile boolean gano;
+    // Se libera en cuanto el juego termina (victoria, captura o límite de turnos)
+    private final CountDownLatch finDelJuego;
+    private EstrategiaNeo estrategia;
+    
+    // Nodos expandidos en la última búsqueda y en total, para comparar estrategias
+    private int nodosExpandidos;
+    private long nodosExpandidosTotales;
     
     private int proximaX;
     private int proximaY;
     private boolean movimientoCalculado;
     
     public Neo(int posX, int posY, List<Telefono> telefonos, 
-               List<Agente> agentes, List<Muro> muros,
-               CyclicBarrier barreraCalculo,
-               CyclicBarrier barreraAplicacion, Object lockTablero) {
+               Mundo mundo, IndiceOcupacion ocupacion,
+               Phaser fase, ReentrantLock lockTablero) {
         super(posX, posY, 'N', "Neo");
         this.telefonos = telefonos;
-        this.agentes = agentes;
-        this.muros = muros; 
-        this.barreraCalculo = barreraCalculo;
-        this.barreraAplicacion = barreraAplicacion;
+        this.mundo = mundo;
+        this.ocupacion = ocupacion;
+        this.espacio = new EspacioBusqueda(mundo);
+        this.fase = fase;
         this.lockTablero = lockTablero;
         this.juegoActivo = true;
         this.gano = false;
+        this.finDelJuego = new CountDownLatch(1);
+        this.estrategia = EstrategiaNeo.TELEFONO_MAS_CERCANO;
+        this.nucleoAmenaza = NucleoAmenaza.porDefecto();
         this.movimientoCalculado = false;
     }
     
+    public boolean isJuegoActivo() {
+        return juegoActivo;
+    }
+    
     public boolean isGano() {
         return gano;
     }
     
+    /**
+     * Solo para restaurar una partida desde un punto de control
+     */
+    public void setGano(boolean gano) {
+        this.gano = gano;
+    }
+    
     public void setJuegoActivo(boolean juegoActivo) {
         this.juegoActivo = juegoActivo;
+        if (!juegoActivo) {
+            finDelJuego.countDown();
+        }
+    }
+    
+    /**
+     * Bloquea hasta que el juego termine, sin necesidad de consultar el estado periódicamente
+     */
+    public void esperarFinDelJuego() throws InterruptedException {
+        finDelJuego.await();
+    }
+    
+    public EstrategiaNeo getEstrategia() {
+        return estrategia;
+    }
+    
+    public void setEstrategia(EstrategiaNeo estrategia) {
+        this.estrategia = estrategia;
+    }
+    
+    public void setComponentes(ComponentesConexas componentes) {
+        this.componentes = componentes;
+    }
+    
+    public void setNucleoAmenaza(NucleoAmenaza nucleoAmenaza) {
+        this.nucleoAmenaza = nucleoAmenaza;
+    }
+    
+    /**
+     * Campo de costos que se recalcula una vez por turno; debe usar el mismo núcleo que Neo
+     */
+    public void setCampoAmenaza(CampoAmenaza campoAmenaza) {
+        this.campoAmenaza = campoAmenaza;
+    }
+    
+    public void setMapaJerarquico(MapaJerarquico mapaJerarquico) {
+        this.mapaJerarquico = mapaJerarquico;
+    }
+    
+    public int getNodosExpandidos() {
+        return nodosExpandidos;
+    }
+    
+    public long getNodosExpandidosTotales() {
+        return nodosExpandidosTotales;
     }
     
     @Override
     public void run() {
         try {
-            while (juegoActivo && vivo) {
-                movimientoCalculado = calcularProximoMovimiento();
+            while (participa()) {
+                calcularTurnoMedido();
                 
-                barreraCalculo.await();
+                if (esperarFase(fase, true) < 0) break;
                 
-                if (!juegoActivo || !vivo) break;
+                if (!participa()) break;
                 
-                synchronized(lockTablero) {
-                    if (movimientoCalculado) {
-                        posX = proximaX;
-                        posY = proximaY;
-                        System.out.println(">>> " + nombre + " se movió a (" + 
-                                         posX + ", " + posY + ")");
-                    }
-                }
+                aplicarTurno();
 
-                barreraAplicacion.await();
+                if (esperarFase(fase, false) < 0) break;
 
-                verificarVictoria();
+                verificarTurno();
                 
                 if (!juegoActivo) break;
 
-                Thread.sleep(500);
+                pausar();
             }
         } catch (InterruptedException e) {
             // El hilo fue interrumpido, terminar limpiamente
             Thread.currentThread().interrupt();
-        } catch (BrokenBarrierException e) {
-            // La barrera fue reseteada, el juego terminó
-            Thread.currentThread().interrupt();
+        } finally {
+            fase.arriveAndDeregister();
+            finDelJuego.countDown();
+        }
+    }
+    
+    @Override
+    public boolean participa() {
+        return juegoActivo && vivo;
+    }
+    
+    @Override
+    public void calcularTurno() {
+        actualizarVista();
+        long nodosAntes = nodosExpandidosTotales;
+        movimientoCalculado = calcularProximoMovimiento();
+        if (metricas != null) {
+            metricas.sumarNodosBusquedaNeo(nodosExpandidosTotales - nodosAntes);
+        }
+    }
+    
+    @Override
+    public void aplicarTurno() {
+        if (movimientoCalculado) {
+            posX = proximaX;
+            posY = proximaY;
+            registrarEvento(TipoEvento.MOVIMIENTO, 0, posX, posY);
         }
+        // Aunque no se mueva: el búfer siguiente tiene la posición de hace dos turnos
+        publicarPosicion();
+    }
+    
+    @Override
+    public void verificarTurno() {
+        verificarVictoria();
     }
     
     @Override
@@ -86,17 +189,39 @@ public class Neo extends Persona {
      * Cálculo del próximo movimiento sin modificar la posición actual
      */
     private boolean calcularProximoMovimiento() {
-        Telefono telefonoObjetivo = encontrarTelefonoMasCercano();
+        int siguientePaso;
         
-        if (telefonoObjetivo == null) {
-            return false;
+        if (estrategia == EstrategiaNeo.TELEFONO_MAS_CERCANO) {
+            int telefonoObjetivo = encontrarTelefonoMasCercano();
+            
+            if (telefonoObjetivo == SIN_CAMINO) {
+                return false;
+            }
+            
+            siguientePaso = dijkstra(telefonoObjetivo);
+        } else if (estrategia == EstrategiaNeo.INCREMENTAL) {
+            if (vista.getCantidadTelefonos() == 0) {
+                return false;
+            }
+            
+            siguientePaso = planificarIncremental();
+        } else if (estrategia == EstrategiaNeo.JERARQUICO) {
+            if (vista.getCantidadTelefonos() == 0) {
+                return false;
+            }
+            
+            siguientePaso = planificarJerarquico();
+        } else {
+            if (vista.getCantidadTelefonos() == 0) {
+                return false;
+            }
+            
+            siguientePaso = buscarCamino(SIN_CAMINO, estrategia == EstrategiaNeo.A_ESTRELLA);
         }
         
-        int[] siguientePaso = dijkstra(telefonoObjetivo);
-        
-        if (siguientePaso != null) {
-            proximaX = siguientePaso[0];
-            proximaY = siguientePaso[1];
+        if (siguientePaso != SIN_CAMINO) {
+            proximaX = mundo.x(siguientePaso);
+            proximaY = mundo.y(siguientePaso);
             return true;
         }
         
@@ -111,11 +236,15 @@ public class Neo extends Persona {
     private void verificarVictoria() {
         for (Telefono tel : telefonos) {
             if (!tel.isUsado() && posX == tel.getPosX() && posY == tel.getPosY()) {
-                synchronized(lockTablero) {
+                lockTablero.lock();
+                try {
                     gano = true;
-                    juegoActivo = false;
+                    setJuegoActivo(false);
                     tel.setUsado(true);
-                    System.out.println("¡Neo llegó al teléfono en (" + posX + ", " + posY + ") y escapó de Matrix!");
+                    ocupacion.quitarTelefono(tel.getPosX(), tel.getPosY());
+                    registrarEvento(TipoEvento.TELEFONO_ALCANZADO, 0, posX, posY);
+                } finally {
+                    lockTablero.unlock();
                 }
                 break;
             }
@@ -123,151 +252,217 @@ public class Neo extends Persona {
     }
     
     /**
-     * Encuentra el teléfono más cercano usando distancia Manhattan
+     * Encuentra la celda del teléfono sin usar más cercano usando distancia Manhattan
      */
-    private Telefono encontrarTelefonoMasCercano() {
-        Telefono masCercano = null;
+    private int encontrarTelefonoMasCercano() {
+        int masCercano = SIN_CAMINO;
         int distanciaMinima = Integer.MAX_VALUE;
         
-        for (Telefono tel : telefonos) {
-            if (!tel.isUsado()) {
-                int distancia = tel.distanciaHasta(posX, posY);
-                if (distancia < distanciaMinima) {
-                    distanciaMinima = distancia;
-                    masCercano = tel;
-                }
+        for (int i = 0; i < vista.getCantidadTelefonos(); i++) {
+            int celda = vista.celdaTelefono(i);
+            int distancia = distanciaManhattan(posX, posY, celda);
+            if (distancia < distanciaMinima) {
+                distanciaMinima = distancia;
+                masCercano = celda;
             }
         }
         
         return masCercano;
     }
     
+    private int distanciaManhattan(int x, int y, int celda) {
+        return Math.abs(mundo.x(celda) - x) + Math.abs(mundo.y(celda) - y);
+    }
+    
     /**
-     * Implementación del algoritmo de Dijkstra
+     * Implementación del algoritmo de Dijkstra hacia la celda de un teléfono
      */
-    private int[] dijkstra(Telefono objetivo) {
-        final int TAMANIO = 10;
-        int[][] distancias = new int[TAMANIO][TAMANIO];
-        boolean[][] visitado = new boolean[TAMANIO][TAMANIO];
-        int[][] padre = new int[TAMANIO][TAMANIO];
-        
-        for (int i = 0; i < TAMANIO; i++) {
-            Arrays.fill(distancias[i], Integer.MAX_VALUE);
+    int dijkstra(int objetivo) {
+        return buscarCamino(objetivo, false);
+    }
+    
+    /**
+     * Búsqueda de costo mínimo hacia un teléfono.
+     * Con objetivo SIN_CAMINO todos los teléfonos sin usar son destino y la búsqueda
+     * termina en el primero que se extrae de la cola. Con usarHeuristica se
+     * convierte en A*: la distancia Manhattan es admisible porque cada paso cuesta al menos 1.
+     */
+    private int buscarCamino(int objetivo, boolean usarHeuristica) {
+        nodosExpandidos = 0;
+        if (!hayObjetivoAlcanzable(objetivo)) {
+            return SIN_CAMINO;
         }
         
-        PriorityQueue<Nodo> cola = new PriorityQueue<>();
-        distancias[posX][posY] = 0;
-        cola.offer(new Nodo(posX, posY, 0));
-        padre[posX][posY] = -1;
+        espacio.reiniciar();
+        MonticuloBinario cola = espacio.getMonticulo();
+        MarcasVisita descubierta = espacio.getDescubiertas();
+        MarcasVisita visitado = espacio.getCerradas();
+        int[] distancias = espacio.getDistancias();
+        int[] padre = espacio.getPadres();
         
-        int[] dx = {-1, 1, 0, 0};
-        int[] dy = {0, 0, -1, 1};
+        int origen = mundo.indice(posX, posY);
+        distancias[origen] = 0;
+        padre[origen] = -1;
+        descubierta.marcar(origen);
+        cola.agregar(origen, usarHeuristica ? heuristica(posX, posY, objetivo) : 0);
         
-        while (!cola.isEmpty()) {
-            Nodo actual = cola.poll();
-            int x = actual.x;
-            int y = actual.y;
+        while (!cola.estaVacio()) {
+            int celda = cola.sacar();
             
-            if (visitado[x][y]) continue;
-            visitado[x][y] = true;
+            if (visitado.estaMarcada(celda)) continue;
+            visitado.marcar(celda);
+            nodosExpandidos++;
+            nodosExpandidosTotales++;
             
-            if (x == objetivo.getPosX() && y == objetivo.getPosY()) {
-                return reconstruirPrimerPaso(padre, objetivo.getPosX(), objetivo.getPosY());
+            int x = mundo.x(celda);
+            int y = mundo.y(celda);
+            
+            if (esObjetivo(celda, x, y, objetivo)) {
+                return reconstruirPrimerPaso(padre, celda);
             }
             
             for (int i = 0; i < 4; i++) {
-                int nx = x + dx[i];
-                int ny = y + dy[i];
+                int nx = x + Mundo.DX[i];
+                int ny = y + Mundo.DY[i];
                 
-                if (!posicionValida(nx, ny, TAMANIO) || visitado[nx][ny]) {
+                if (!posicionValida(nx, ny, mundo)) {
+                    continue;
+                }
+                int vecino = mundo.indice(nx, ny);
+                if (visitado.estaMarcada(vecino)) {
                     continue;
                 }
                 
                 int costo = calcularCosto(nx, ny); 
                 if (costo == Integer.MAX_VALUE) continue;
                 
-                int nuevaDistancia = distancias[x][y] + costo;
+                int nuevaDistancia = distancias[celda] + costo;
                 
-                if (nuevaDistancia < distancias[nx][ny]) {
-                    distancias[nx][ny] = nuevaDistancia;
-                    padre[nx][ny] = x * TAMANIO + y;
-                    cola.offer(new Nodo(nx, ny, nuevaDistancia));
+                // Una celda sin descubrir en esta búsqueda tiene distancia infinita
+                if (!descubierta.estaMarcada(vecino) || nuevaDistancia < distancias[vecino]) {
+                    descubierta.marcar(vecino);
+                    distancias[vecino] = nuevaDistancia;
+                    padre[vecino] = celda;
+                    int prioridad = usarHeuristica ? nuevaDistancia + heuristica(nx, ny, objetivo) : nuevaDistancia;
+                    cola.agregar(vecino, prioridad);
                 }
             }
         }
         
-        return null;
+        return SIN_CAMINO;
     }
     
     /**
-     * Calcula el costo de moverse a una posición
-     * Considera muros (infinito) y proximidad a agentes (penalización)
+     * Repara la búsqueda D* Lite con los agentes que se movieron desde el turno anterior
      */
-    private int calcularCosto(int x, int y) {
-        for (Muro muro : muros) {
-            if (muro.getPosX() == x && muro.getPosY() == y) {
-                return Integer.MAX_VALUE;
-            }
+    private int planificarIncremental() {
+        if (!hayObjetivoAlcanzable(SIN_CAMINO)) {
+            nodosExpandidos = 0;
+            return SIN_CAMINO;
         }
-        
-        int costo = 1;
-        
-
-        for (Agente agente : agentes) {
-            if (!agente.isVivo()) continue;
-            
-            int distAgente = Math.abs(x - agente.getPosX()) + 
-                        Math.abs(y - agente.getPosY());
-            
-            if (distAgente == 0) {
-                return Integer.MAX_VALUE; 
-            } else if (distAgente == 1) {
-                costo += 50;
-            } else if (distAgente == 2) {
-                costo += 10;
-            }
+        if (incremental == null) {
+            incremental = new PlanificadorIncremental(mundo, this::calcularCosto, nucleoAmenaza.getRadio());
         }
-        
-        return costo;
+        int siguientePaso = incremental.siguientePaso(vista, mundo.indice(posX, posY));
+        nodosExpandidos = incremental.getNodosExpandidos();
+        nodosExpandidosTotales += nodosExpandidos;
+        return siguientePaso;
     }
     
     /**
-     * Reconstruye el primer paso del camino óptimo
+     * HPA* hacia el teléfono sin usar más cercano; el primer tramo se refina con calcularCosto
      */
-    private int[] reconstruirPrimerPaso(int[][] padre, int destinoX, int destinoY) {
-        final int TAMANIO = 10;
-        int x = destinoX;
-        int y = destinoY;
-        int anteriorX = x;
-        int anteriorY = y;
-        
-        while (padre[x][y] != -1) {
-            anteriorX = x;
-            anteriorY = y;
-            int codPadre = padre[x][y];
-            x = codPadre / TAMANIO;
-            y = codPadre % TAMANIO;
-            
-            if (x == posX && y == posY) {
-                return new int[]{anteriorX, anteriorY};
+    private int planificarJerarquico() {
+        if (!hayObjetivoAlcanzable(SIN_CAMINO)) {
+            nodosExpandidos = 0;
+            return SIN_CAMINO;
+        }
+        if (consultaJerarquica == null) {
+            consultaJerarquica = new ConsultaJerarquica(espacio);
+        }
+        int cantidad = vista.getCantidadTelefonos();
+        if (celdasTelefonos == null || celdasTelefonos.length < cantidad) {
+            celdasTelefonos = new int[cantidad];
+        }
+        for (int i = 0; i < cantidad; i++) {
+            celdasTelefonos[i] = vista.celdaTelefono(i);
+        }
+        int siguientePaso = mapaJerarquico.siguientePaso(mundo.indice(posX, posY), celdasTelefonos, cantidad,
+                this::calcularCosto, consultaJerarquica);
+        nodosExpandidos = consultaJerarquica.getNodosExpandidos();
+        nodosExpandidosTotales += nodosExpandidos;
+        return siguientePaso;
+    }
+    
+    /**
+     * Consulta O(1) por componente: false si los muros separan a Neo del objetivo
+     * (o de todos los teléfonos sin usar, si no hay uno fijo)
+     */
+    private boolean hayObjetivoAlcanzable(int objetivo) {
+        if (componentes == null) {
+            return true;
+        }
+        int origen = mundo.indice(posX, posY);
+        if (objetivo != SIN_CAMINO) {
+            return componentes.conectadas(origen, objetivo);
+        }
+        for (int i = 0; i < vista.getCantidadTelefonos(); i++) {
+            if (componentes.conectadas(origen, vista.celdaTelefono(i))) {
+                return true;
             }
         }
-        
-        return new int[]{posX, posY};
+        return false;
     }
     
-    private class Nodo implements Comparable<Nodo> {
-        int x, y, distancia;
-        
-        Nodo(int x, int y, int distancia) {
-            this.x = x;
-            this.y = y;
-            this.distancia = distancia;
+    private boolean esObjetivo(int celda, int x, int y, int objetivo) {
+        if (objetivo != SIN_CAMINO) {
+            return celda == objetivo;
+        }
+        return vista.hayTelefono(x, y);
+    }
+    
+    /**
+     * Distancia Manhattan al objetivo, o al teléfono sin usar más cercano si no hay uno fijo
+     */
+    private int heuristica(int x, int y, int objetivo) {
+        if (objetivo != SIN_CAMINO) {
+            return distanciaManhattan(x, y, objetivo);
+        }
+        int minima = Integer.MAX_VALUE;
+        for (int i = 0; i < vista.getCantidadTelefonos(); i++) {
+            minima = Math.min(minima, distanciaManhattan(x, y, vista.celdaTelefono(i)));
         }
+        return minima == Integer.MAX_VALUE ? 0 : minima;
+    }
+    
+    /**
+     * Calcula el costo de moverse a una posición
+     * Considera muros (infinito) y proximidad a agentes (penalización del núcleo de amenaza)
+     */
+    int calcularCosto(int x, int y) {
+        // Si el campo no se calculó con esta instantánea se suman los agentes celda por celda
+        if (campoAmenaza != null && campoAmenaza.estaCalculadoPara(vista)) {
+            return campoAmenaza.costo(mundo.indice(x, y));
+        }
+        return nucleoAmenaza.costo(vista, x, y);
+    }
+    
+    /**
+     * Reconstruye el primer paso del camino óptimo
+     */
+    private int reconstruirPrimerPaso(int[] padre, int destino) {
+        int origen = mundo.indice(posX, posY);
+        int celda = destino;
         
-        @Override
-        public int compareTo(Nodo otro) {
-            return Integer.compare(this.distancia, otro.distancia);
+        while (padre[celda] != -1) {
+            int anterior = celda;
+            celda = padre[celda];
+            
+            if (celda == origen) {
+                return anterior;
+            }
         }
+        
+        return origen;
     }
 }
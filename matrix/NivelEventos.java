@@ -0,0 +1,15 @@
+package matrix;
+
+/**
+ * Cuánto detalle se registra en la bitácora de eventos del juego
+ */
+public enum NivelEventos {
+    /** No se registra nada; publicar un evento cuesta solo una comparación */
+    APAGADO,
+    /** Solo capturas y teléfonos alcanzados */
+    RESUMEN,
+    /** Además cada movimiento aplicado */
+    MOVIMIENTOS,
+    /** Además los conflictos de reserva entre agentes */
+    DETALLE
+}
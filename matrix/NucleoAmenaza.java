@@ -0,0 +1,138 @@
+package matrix;
+
+import java.util.*;
+
+/**
+ * Penalización que un agente agrega al costo de las celdas de su alrededor, según
+ * la distancia Manhattan: la celda del agente es infranqueable y a distancia d se
+ * suma getPenalizacion(d), hasta getRadio(). Es inmutable, así que CampoAmenaza y
+ * Neo pueden compartirlo. Cambiar los pesos no toca los bucles de búsqueda.
+ */
+public final class NucleoAmenaza {
+    public static final int INFRANQUEABLE = Integer.MAX_VALUE;
+
+    private static final NucleoAmenaza POR_DEFECTO = new NucleoAmenaza(50, 10);
+
+    // Penalización por distancia; la posición 0 (la celda del agente) siempre es INFRANQUEABLE
+    private final int[] penalizaciones;
+    // Desplazamientos del vecindario (distancia 0 incluida) con el peso de cada uno
+    private final int[] dx;
+    private final int[] dy;
+    private final int[] pesos;
+
+    /**
+     * @param penalizaciones penalización a distancia 1, 2, ...; su cantidad es el radio
+     */
+    public NucleoAmenaza(int... penalizaciones) {
+        this.penalizaciones = new int[penalizaciones.length + 1];
+        this.penalizaciones[0] = INFRANQUEABLE;
+        for (int d = 1; d <= penalizaciones.length; d++) {
+            if (penalizaciones[d - 1] < 0) {
+                throw new IllegalArgumentException("Penalización negativa a distancia " + d);
+            }
+            this.penalizaciones[d] = penalizaciones[d - 1];
+        }
+
+        int radio = penalizaciones.length;
+        int celdas = 2 * radio * (radio + 1) + 1;
+        this.dx = new int[celdas];
+        this.dy = new int[celdas];
+        this.pesos = new int[celdas];
+        int k = 0;
+        for (int oy = -radio; oy <= radio; oy++) {
+            int resto = radio - Math.abs(oy);
+            for (int ox = -resto; ox <= resto; ox++) {
+                dx[k] = ox;
+                dy[k] = oy;
+                pesos[k] = this.penalizaciones[Math.abs(ox) + Math.abs(oy)];
+                k++;
+            }
+        }
+    }
+
+    /**
+     * Núcleo clásico del juego: +50 a distancia 1 y +10 a distancia 2
+     */
+    public static NucleoAmenaza porDefecto() {
+        return POR_DEFECTO;
+    }
+
+    /**
+     * Lee las penalizaciones separadas por comas, por ejemplo "50,10"
+     */
+    public static NucleoAmenaza desdeTexto(String texto) {
+        String[] partes = texto.split(",");
+        int[] penalizaciones = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            penalizaciones[i] = Integer.parseInt(partes[i].trim());
+        }
+        return new NucleoAmenaza(penalizaciones);
+    }
+
+    public int getRadio() {
+        return penalizaciones.length - 1;
+    }
+
+    public int getPenalizacion(int distancia) {
+        return penalizaciones[distancia];
+    }
+
+    int getCeldas() {
+        return pesos.length;
+    }
+
+    int dx(int k) {
+        return dx[k];
+    }
+
+    int dy(int k) {
+        return dy[k];
+    }
+
+    int peso(int k) {
+        return pesos[k];
+    }
+
+    /**
+     * Costo de entrar a (x, y) sumando los agentes del vecindario uno por uno.
+     * Es lo que CampoAmenaza deja precalculado; sirve cuando no hay campo.
+     */
+    public int costo(InstantaneaMundo vista, int x, int y) {
+        if (vista.hayMuro(x, y)) {
+            return INFRANQUEABLE;
+        }
+        int costo = 1;
+        for (int k = 0; k < pesos.length; k++) {
+            int agentes = vista.agentesEn(x + dx[k], y + dy[k]);
+            for (int a = 0; a < agentes; a++) {
+                costo = sumar(costo, pesos[k]);
+            }
+        }
+        return costo;
+    }
+
+    /**
+     * Suma saturada: INFRANQUEABLE absorbe y un costo finito nunca llega a serlo
+     */
+    static int sumar(int costo, int peso) {
+        if (costo == INFRANQUEABLE || peso == INFRANQUEABLE) {
+            return INFRANQUEABLE;
+        }
+        return (int) Math.min((long) costo + peso, INFRANQUEABLE - 1L);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof NucleoAmenaza && Arrays.equals(penalizaciones, ((NucleoAmenaza) otro).penalizaciones);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(penalizaciones);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOfRange(penalizaciones, 1, penalizaciones.length));
+    }
+}
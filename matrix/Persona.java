@@ -1,11 +1,24 @@
 package matrix;
 
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+
 public abstract class Persona implements Comportamiento, Runnable {
     protected int posX;
     protected int posY;
     protected char simbolo;
-    protected boolean vivo; // Esto es para saber si el personaje sigue activo
+    protected volatile boolean vivo; // Esto es para saber si el personaje sigue activo
     protected String nombre;
+    protected long pausaMs; // Pausa entre turnos para poder seguir el juego en consola
+    protected boolean silencioso; // Sin mensajes por consola (modo sin consola)
+    // Posiciones publicadas por turno; posX/posY son la copia de trabajo del propio personaje
+    protected PosicionesTurno posiciones;
+    protected int ranura;
+    // Los buscadores de caminos leen solo la última instantánea publicada, tomada al empezar el cálculo
+    protected AtomicReference<InstantaneaMundo> mundoPublicado;
+    protected InstantaneaMundo vista;
+    protected BusEventos eventos;
+    protected MetricasJuego metricas; // null = no se mide nada
     
     public Persona(int posX, int posY, char simbolo, String nombre) {
         this.posX = posX;
@@ -13,15 +26,18 @@ public abstract class Persona implements Comportamiento, Runnable {
         this.simbolo = simbolo;
         this.vivo = true;
         this.nombre = nombre;
+        this.pausaMs = 500;
+        this.silencioso = false;
     }
     
     // Getters
+    // Los demás hilos leen la posición publicada al cerrar el último turno
     public int getPosX() {
-        return posX;
+        return posiciones != null ? posiciones.x(ranura) : posX;
     }
     
     public int getPosY() {
-        return posY;
+        return posiciones != null ? posiciones.y(ranura) : posY;
     }
     
     public char getSimbolo() {
@@ -49,19 +65,145 @@ public abstract class Persona implements Comportamiento, Runnable {
         this.vivo = vivo;
     }
     
+    public void setPausaMs(long pausaMs) {
+        this.pausaMs = pausaMs;
+    }
+    
+    public void setSilencioso(boolean silencioso) {
+        this.silencioso = silencioso;
+    }
+    
+    /**
+     * Asigna la ranura del personaje en el almacén de posiciones y publica su posición inicial
+     */
+    public void setPosiciones(PosicionesTurno posiciones, int ranura) {
+        this.posiciones = posiciones;
+        this.ranura = ranura;
+        posiciones.iniciar(ranura, posX, posY);
+    }
+    
+    public void setMundoPublicado(AtomicReference<InstantaneaMundo> mundoPublicado) {
+        this.mundoPublicado = mundoPublicado;
+        this.vista = mundoPublicado.get();
+    }
+    
+    public void setEventos(BusEventos eventos) {
+        this.eventos = eventos;
+    }
+    
+    public void setMetricas(MetricasJuego metricas) {
+        this.metricas = metricas;
+    }
+    
+    /**
+     * Fase 1 del turno, anotando cuánto tardó si hay métricas
+     */
+    public final void calcularTurnoMedido() {
+        if (metricas == null) {
+            calcularTurno();
+            return;
+        }
+        long inicio = System.nanoTime();
+        calcularTurno();
+        metricas.registrarCalculo(System.nanoTime() - inicio);
+    }
+    
+    /**
+     * Llega al cierre de una fase y espera a los demás, anotando la espera si hay métricas
+     *
+     * @param trasCalculo true al cerrar la fase de cálculo, false al cerrar la de aplicación
+     * @return el número de la fase siguiente, negativo si la sincronización terminó
+     */
+    protected int esperarFase(Phaser fase, boolean trasCalculo) {
+        if (metricas == null) {
+            return fase.arriveAndAwaitAdvance();
+        }
+        long inicio = System.nanoTime();
+        int siguiente = fase.arriveAndAwaitAdvance();
+        metricas.registrarEspera(trasCalculo, System.nanoTime() - inicio);
+        return siguiente;
+    }
+    
+    /**
+     * Deja un evento en la bitácora sin imprimir ni bloquear; el turno es el que se está jugando
+     *
+     * @param personaje 0 para Neo o el id del agente
+     */
+    protected void registrarEvento(TipoEvento tipo, int personaje, int x, int y) {
+        if (eventos != null && eventos.registra(tipo)) {
+            eventos.publicar(tipo, vista != null ? vista.getTurno() + 1 : 0, personaje, x, y);
+        }
+    }
+    
+    /**
+     * Toma la instantánea publicada al cerrar el último turno
+     */
+    protected void actualizarVista() {
+        if (mundoPublicado != null) {
+            vista = mundoPublicado.get();
+        }
+    }
+    
+    /**
+     * Escribe la posición de trabajo en el búfer del próximo turno
+     */
+    protected void publicarPosicion() {
+        if (posiciones != null) {
+            posiciones.escribir(ranura, posX, posY);
+        }
+    }
+    
+    /**
+     * Espera entre turnos; con pausa 0 el personaje avanza a toda velocidad
+     */
+    protected void pausar() throws InterruptedException {
+        if (pausaMs > 0) {
+            Thread.sleep(pausaMs);
+        }
+    }
+    
+    /**
+     * Muestra un mensaje por consola salvo en modo silencioso
+     */
+    protected void mostrar(String mensaje) {
+        if (!silencioso) {
+            System.out.println(mensaje);
+        }
+    }
+    
+    /**
+     * Indica si el personaje sigue participando de los turnos
+     */
+    public abstract boolean participa();
+    
+    /**
+     * Fase 1 del turno: calcula el próximo movimiento sin modificar la posición
+     */
+    public abstract void calcularTurno();
+    
+    /**
+     * Fase 2 del turno: aplica el movimiento calculado
+     */
+    public abstract void aplicarTurno();
+    
+    /**
+     * Después de aplicar: verifica capturas o victorias
+     */
+    public abstract void verificarTurno();
+    
     /**
      * Método para colocar al personaje en el tablero
      */
     public void colocarEnTablero(char[][] tablero) {
         if (vivo) {
-            tablero[posY][posX] = this.simbolo;
+            tablero[getPosY()][getPosX()] = this.simbolo;
         }
     }
     
     /**
      * Verifica si una posición está dentro de los límites del tablero
      */
-    protected boolean posicionValida(int x, int y, int tamaño) {
-        return x >= 0 && x < tamaño && y >= 0 && y < tamaño;
+    protected boolean posicionValida(int x, int y, Mundo mundo) {
+        return mundo.contiene(x, y);
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package matrix;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Planificador incremental de Neo (D* Lite). La búsqueda va hacia atrás, desde los
+ * teléfonos sin usar hacia Neo, y conserva sus distancias entre turnos. Cada turno
+ * solo se revisan las celdas cuyo costo cambió porque un agente salió o entró a su
+ * vecindario de penalización; los muros y los teléfonos casi nunca cambian, y si lo
+ * hacen la búsqueda se rehace desde cero.
+ *
+ * Las claves son (min(g, rhs) + h + km, min(g, rhs)), con h la distancia Manhattan
+ * a Neo y km la distancia acumulada que Neo avanzó desde la última búsqueda completa.
+ */
+public class PlanificadorIncremental {
+    private static final int SIN_CAMINO = -1;
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    private final Mundo mundo;
+    // Costo de entrar a (x, y) según la instantánea vigente; INFINITO si no se puede
+    private final IntBinaryOperator costo;
+    // Hasta qué distancia Manhattan un agente cambia el costo de una celda
+    private final int radioCosto;
+    // Distancia al teléfono más cercano y su estimación a un paso (iguales si la celda es consistente)
+    private final int[] g;
+    private final int[] rhs;
+    private final MarcasVisita cambiadas;
+    private final ColaEnteros pendientes;
+
+    // Cola de prioridad con reinserción perezosa: las entradas obsoletas se descartan al extraerlas
+    private long[] claves;
+    private int[] celdasCola;
+    private int tamanioCola;
+
+    private boolean iniciado;
+    // Instantánea con la que se planificó el turno anterior
+    private InstantaneaMundo anterior;
+    private int[] telefonos;
+    private int origen;
+    private int km;
+    private int nodosExpandidos;
+
+    /**
+     * @param radioCosto radio del núcleo de amenaza que usa costo
+     */
+    public PlanificadorIncremental(Mundo mundo, IntBinaryOperator costo, int radioCosto) {
+        this.mundo = mundo;
+        this.costo = costo;
+        this.radioCosto = radioCosto;
+        this.g = mundo.nuevaCapaEnteros();
+        this.rhs = mundo.nuevaCapaEnteros();
+        this.cambiadas = new MarcasVisita(mundo.getCeldas());
+        this.pendientes = new ColaEnteros(64);
+        this.claves = new long[64];
+        this.celdasCola = new int[64];
+    }
+
+    /**
+     * Nodos expandidos al planificar el último turno
+     */
+    public int getNodosExpandidos() {
+        return nodosExpandidos;
+    }
+
+    /**
+     * Repara la búsqueda con la instantánea del turno y devuelve la celda del primer
+     * paso desde origen, o -1 si ningún teléfono es alcanzable
+     */
+    public int siguientePaso(InstantaneaMundo vista, int origen) {
+        nodosExpandidos = 0;
+        if (!iniciado || cambioElMundo(vista) || tamanioCola > 4 * mundo.getCeldas()) {
+            iniciar(vista, origen);
+        } else {
+            km += distancia(this.origen, origen);
+            this.origen = origen;
+            repararAgentesMovidos(vista);
+        }
+        anterior = vista;
+        calcularCaminoMasCorto();
+        return mejorVecino(origen);
+    }
+
+    /**
+     * Búsqueda desde cero: todos los teléfonos sin usar son destino
+     */
+    private void iniciar(InstantaneaMundo vista, int origen) {
+        Arrays.fill(g, INFINITO);
+        Arrays.fill(rhs, INFINITO);
+        tamanioCola = 0;
+        km = 0;
+        this.origen = origen;
+        telefonos = new int[vista.getCantidadTelefonos()];
+        for (int i = 0; i < telefonos.length; i++) {
+            telefonos[i] = vista.celdaTelefono(i);
+            rhs[telefonos[i]] = 0;
+            encolar(telefonos[i]);
+        }
+        iniciado = true;
+    }
+
+    /**
+     * Los muros o los teléfonos cambiaron: las distancias guardadas ya no sirven
+     */
+    private boolean cambioElMundo(InstantaneaMundo vista) {
+        if (vista.getVersionMuros() != anterior.getVersionMuros()
+                || vista.getCantidadTelefonos() != telefonos.length
+                || vista.getCantidadPersonajes() != anterior.getCantidadPersonajes()) {
+            return true;
+        }
+        for (int i = 0; i < telefonos.length; i++) {
+            if (vista.celdaTelefono(i) != telefonos[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compara las posiciones de los agentes con las del turno anterior y vuelve a
+     * estimar las celdas vecinas de aquellas cuyo costo pudo cambiar
+     */
+    private void repararAgentesMovidos(InstantaneaMundo vista) {
+        cambiadas.nuevaBusqueda();
+        pendientes.limpiar();
+        for (int ranura = 1; ranura < vista.getCantidadPersonajes(); ranura++) {
+            int antes = anterior.estaVivo(ranura) ? anterior.celda(ranura) : SIN_CAMINO;
+            int ahora = vista.estaVivo(ranura) ? vista.celda(ranura) : SIN_CAMINO;
+            if (antes != ahora) {
+                marcarVecindario(antes);
+                marcarVecindario(ahora);
+            }
+        }
+        // Cambió el costo de entrar a cada celda pendiente: lo sienten sus vecinas, que pueden entrar a ella
+        while (!pendientes.estaVacia()) {
+            int celda = pendientes.sacar();
+            int x = mundo.x(celda);
+            int y = mundo.y(celda);
+            for (int i = 0; i < 4; i++) {
+                int nx = x + Mundo.DX[i];
+                int ny = y + Mundo.DY[i];
+                if (mundo.contiene(nx, ny)) {
+                    actualizarCelda(mundo.indice(nx, ny));
+                }
+            }
+        }
+    }
+
+    /**
+     * Anota las celdas a distancia Manhattan de hasta radioCosto, cuyo costo depende de esta
+     */
+    private void marcarVecindario(int celda) {
+        if (celda == SIN_CAMINO) {
+            return;
+        }
+        int cx = mundo.x(celda);
+        int cy = mundo.y(celda);
+        for (int dy = -radioCosto; dy <= radioCosto; dy++) {
+            int resto = radioCosto - Math.abs(dy);
+            for (int dx = -resto; dx <= resto; dx++) {
+                int x = cx + dx;
+                int y = cy + dy;
+                if (!mundo.contiene(x, y)) {
+                    continue;
+                }
+                int vecina = mundo.indice(x, y);
+                if (!cambiadas.estaMarcada(vecina)) {
+                    cambiadas.marcar(vecina);
+                    pendientes.agregar(vecina);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalcula rhs de una celda con sus vecinas y la encola si quedó inconsistente
+     */
+    private void actualizarCelda(int celda) {
+        if (rhs[celda] != 0) {
+            rhs[celda] = mejorEstimacion(celda);
+        }
+        if (g[celda] != rhs[celda]) {
+            encolar(celda);
+        }
+    }
+
+    /**
+     * Expande celdas hasta que la distancia de Neo sea consistente y ninguna clave pendiente sea menor
+     */
+    private void calcularCaminoMasCorto() {
+        while (tamanioCola > 0 && (claves[0] < clave(origen) || g[origen] != rhs[origen])) {
+            long claveVieja = claves[0];
+            int celda = sacar();
+            if (g[celda] == rhs[celda]) {
+                continue; // entrada obsoleta
+            }
+            long claveNueva = clave(celda);
+            if (claveVieja < claveNueva) {
+                // Neo avanzó desde que se encoló: vuelve con la clave actual
+                encolar(celda);
+                continue;
+            }
+            nodosExpandidos++;
+            if (g[celda] > rhs[celda]) {
+                g[celda] = rhs[celda];
+            } else {
+                g[celda] = INFINITO;
+                actualizarCelda(celda);
+            }
+            actualizarVecinas(celda);
+        }
+    }
+
+    private void actualizarVecinas(int celda) {
+        int x = mundo.x(celda);
+        int y = mundo.y(celda);
+        for (int i = 0; i < 4; i++) {
+            int nx = x + Mundo.DX[i];
+            int ny = y + Mundo.DY[i];
+            if (mundo.contiene(nx, ny)) {
+                actualizarCelda(mundo.indice(nx, ny));
+            }
+        }
+    }
+
+    /**
+     * Menor costo de dar un paso a una vecina más su distancia guardada
+     */
+    private int mejorEstimacion(int celda) {
+        long mejor = INFINITO;
+        int x = mundo.x(celda);
+        int y = mundo.y(celda);
+        for (int i = 0; i < 4; i++) {
+            int nx = x + Mundo.DX[i];
+            int ny = y + Mundo.DY[i];
+            if (!mundo.contiene(nx, ny)) {
+                continue;
+            }
+            int vecina = mundo.indice(nx, ny);
+            if (g[vecina] == INFINITO) {
+                continue;
+            }
+            int paso = costo.applyAsInt(nx, ny);
+            if (paso != INFINITO) {
+                mejor = Math.min(mejor, (long) paso + g[vecina]);
+            }
+        }
+        return (int) Math.min(mejor, INFINITO - 1L);
+    }
+
+    /**
+     * Vecina que minimiza costo de entrada más distancia, desempatando en el orden de Mundo.DX
+     */
+    private int mejorVecino(int celda) {
+        if (g[celda] == INFINITO) {
+            return SIN_CAMINO;
+        }
+        long mejor = INFINITO;
+        int elegida = SIN_CAMINO;
+        int x = mundo.x(celda);
+        int y = mundo.y(celda);
+        for (int i = 0; i < 4; i++) {
+            int nx = x + Mundo.DX[i];
+            int ny = y + Mundo.DY[i];
+            if (!mundo.contiene(nx, ny)) {
+                continue;
+            }
+            int vecina = mundo.indice(nx, ny);
+            int paso = costo.applyAsInt(nx, ny);
+            if (paso == INFINITO || g[vecina] == INFINITO) {
+                continue;
+            }
+            long total = (long) paso + g[vecina];
+            if (total < mejor) {
+                mejor = total;
+                elegida = vecina;
+            }
+        }
+        return elegida;
+    }
+
+    /**
+     * Clave en un solo long: primer componente en los 32 bits altos y segundo en los bajos
+     */
+    private long clave(int celda) {
+        long minimo = Math.min(g[celda], rhs[celda]);
+        long primera = Math.min(minimo + distancia(origen, celda) + km, INFINITO);
+        return (primera << 32) | minimo;
+    }
+
+    private int distancia(int a, int b) {
+        return Math.abs(mundo.x(a) - mundo.x(b)) + Math.abs(mundo.y(a) - mundo.y(b));
+    }
+
+    // Montículo binario de mínimos sobre claves y celdas paralelas
+    private void encolar(int celda) {
+        if (tamanioCola == claves.length) {
+            claves = Arrays.copyOf(claves, tamanioCola * 2);
+            celdasCola = Arrays.copyOf(celdasCola, tamanioCola * 2);
+        }
+        long clave = clave(celda);
+        int i = tamanioCola++;
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (claves[padre] <= clave) {
+                break;
+            }
+            claves[i] = claves[padre];
+            celdasCola[i] = celdasCola[padre];
+            i = padre;
+        }
+        claves[i] = clave;
+        celdasCola[i] = celda;
+    }
+
+    private int sacar() {
+        int celda = celdasCola[0];
+        long ultimaClave = claves[--tamanioCola];
+        int ultimaCelda = celdasCola[tamanioCola];
+        int i = 0;
+        int mitad = tamanioCola >>> 1;
+        while (i < mitad) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < tamanioCola && claves[hijo + 1] < claves[hijo]) {
+                hijo++;
+            }
+            if (ultimaClave <= claves[hijo]) {
+                break;
+            }
+            claves[i] = claves[hijo];
+            celdasCola[i] = celdasCola[hijo];
+            i = hijo;
+        }
+        if (tamanioCola > 0) {
+            claves[i] = ultimaClave;
+            celdasCola[i] = ultimaCelda;
+        }
+        return celda;
+    }
+}
@@ -0,0 +1,96 @@
+package matrix;
+
+import java.util.concurrent.*;
+
+/**
+ * Ejecuta los turnos sin un hilo por personaje: cada turno son dos fases en
+ * bloque (calcular y luego aplicar) repartidas en lotes sobre un ForkJoinPool
+ * con tantos hilos como núcleos. Neo es una unidad de trabajo más y los agentes
+ * se procesan como rangos de índices del AlmacenAgentes.
+ *
+ * El final de cada fase cumple el mismo papel que el Phaser del modo con
+ * hilos: ninguna fase empieza hasta que la anterior terminó para todos.
+ */
+public class PlanificadorTurnos {
+    // Personajes por tarea; por debajo de este tamaño un lote ya no se divide
+    private static final int TAMANIO_LOTE = 256;
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final Persona neo;
+    private final AlmacenAgentes agentes;
+    private final Runnable alTerminarCalculo;
+    private final Runnable alTerminarAplicacion;
+
+    /**
+     * @param neo el personaje de la ranura 0
+     * @param agentes los agentes, ranuras 1..n
+     * @param alTerminarCalculo acción que se ejecuta al terminar la fase de cálculo
+     * @param alTerminarAplicacion acción que se ejecuta al terminar la fase de aplicación
+     */
+    public PlanificadorTurnos(Persona neo, AlmacenAgentes agentes,
+                              Runnable alTerminarCalculo, Runnable alTerminarAplicacion) {
+        this.neo = neo;
+        this.agentes = agentes;
+        this.alTerminarCalculo = alTerminarCalculo;
+        this.alTerminarAplicacion = alTerminarAplicacion;
+    }
+
+    /**
+     * Ejecuta un turno completo: cálculo, aplicación y verificación de capturas o victorias
+     */
+    public void ejecutarTurno() {
+        int ranuras = agentes.getCantidad() + 1;
+        POOL.invoke(new Fase(Fase.CALCULAR, 0, ranuras));
+        alTerminarCalculo.run();
+
+        POOL.invoke(new Fase(Fase.APLICAR, 0, ranuras));
+        alTerminarAplicacion.run();
+
+        POOL.invoke(new Fase(Fase.VERIFICAR, 0, ranuras));
+    }
+
+    /**
+     * Aplica una fase del turno a un rango de ranuras, dividiéndolo mientras sea grande.
+     * RecursiveAction es Serializable, pero las fases solo viven dentro de un turno y nunca se serializan.
+     */
+    @SuppressWarnings("serial")
+    private class Fase extends RecursiveAction {
+        static final int CALCULAR = 0;
+        static final int APLICAR = 1;
+        static final int VERIFICAR = 2;
+
+        private final int tipo;
+        private final int desde;
+        private final int hasta;
+
+        Fase(int tipo, int desde, int hasta) {
+            this.tipo = tipo;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > TAMANIO_LOTE) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new Fase(tipo, desde, medio), new Fase(tipo, medio, hasta));
+                return;
+            }
+            if (desde == 0 && neo.participa()) {
+                switch (tipo) {
+                    case CALCULAR: neo.calcularTurnoMedido(); break;
+                    case APLICAR: neo.aplicarTurno(); break;
+                    default: neo.verificarTurno(); break;
+                }
+            }
+            // La ranura r corresponde al agente r - 1
+            int primero = Math.max(desde, 1) - 1;
+            int ultimo = hasta - 1;
+            switch (tipo) {
+                case CALCULAR: agentes.calcular(primero, ultimo); break;
+                case APLICAR: agentes.aplicar(primero, ultimo); break;
+                default: agentes.verificar(primero, ultimo); break;
+            }
+        }
+    }
+}
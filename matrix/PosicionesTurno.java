@@ -0,0 +1,78 @@
+package matrix;
+
+/**
+ * Posiciones de todos los personajes con doble búfer.
+ * Durante la fase de aplicación cada personaje escribe solo su ranura en el búfer
+ * "siguiente", sin bloqueos, aunque no se mueva; al cerrar el turno (cuando nadie
+ * escribe) se intercambian los búferes sin copiar nada. Quien lee durante el cálculo ve siempre las
+ * posiciones completas del turno anterior, nunca una mezcla.
+ */
+public class PosicionesTurno {
+    private final Mundo mundo;
+    private int[] actuales;
+    private int[] siguientes;
+
+    public PosicionesTurno(Mundo mundo, int ranuras) {
+        this.mundo = mundo;
+        this.actuales = new int[ranuras];
+        this.siguientes = new int[ranuras];
+    }
+
+    /**
+     * Fija la posición inicial de una ranura en ambos búferes
+     */
+    public void iniciar(int ranura, int x, int y) {
+        int celda = mundo.indice(x, y);
+        actuales[ranura] = celda;
+        siguientes[ranura] = celda;
+    }
+
+    public int getRanuras() {
+        return actuales.length;
+    }
+
+    // Posición publicada en el último cierre de turno
+    public int celda(int ranura) {
+        return actuales[ranura];
+    }
+
+    public int x(int ranura) {
+        return mundo.x(actuales[ranura]);
+    }
+
+    public int y(int ranura) {
+        return mundo.y(actuales[ranura]);
+    }
+
+    /**
+     * Copia de las posiciones publicadas, indexada por ranura
+     */
+    public int[] copiarCeldas() {
+        return actuales.clone();
+    }
+
+    /**
+     * Posición escrita durante la fase de aplicación que todavía no se publicó
+     */
+    public int celdaSiguiente(int ranura) {
+        return siguientes[ranura];
+    }
+
+    /**
+     * Escribe la posición del personaje para el próximo turno; solo la llama el dueño
+     * de la ranura, y en todos los turnos: el otro búfer tiene la posición de hace dos
+     */
+    public void escribir(int ranura, int x, int y) {
+        siguientes[ranura] = mundo.indice(x, y);
+    }
+
+    /**
+     * Publica las posiciones escritas en este turno. Debe llamarse cuando nadie
+     * está escribiendo (al cerrar la fase de aplicación).
+     */
+    public void intercambiar() {
+        int[] publicadas = siguientes;
+        siguientes = actuales;
+        actuales = publicadas;
+    }
+}
@@ -0,0 +1,260 @@
+package matrix;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * Punto de control con el estado completo de una partida en curso, para pausarla
+ * o moverla a otra máquina y reanudarla con MatrixGame.reanudar.
+ *
+ * Formato binario versionado (big-endian):
+ * <pre>
+ * MAGIA, VERSION, ancho, alto, turno, semilla (long), estado del generador (long)
+ * configuración: estrategia y modo (ordinales, un byte cada uno), banderas
+ *     (1 = campo de persecución, 2 = agentes jerárquicos, 4 = determinista),
+ *     máximo de turnos, penalizaciones de amenaza: cantidad, valores...
+ * Neo: celda, banderas (1 = vivo, 2 = ganó)
+ * muros: nombre del archivo de la capa (largo en bytes y UTF-8), CRC32 de la capa
+ * teléfonos: cantidad, (celda, usado)...
+ * agentes: cantidad, (id, celda, vivo)...
+ * CRC32 de todo lo anterior
+ * </pre>
+ * Los muros no cambian durante la partida, así que van aparte, en una capa de bits
+ * por celda que EscritorPuntoControl escribe una sola vez y que todos los puntos de
+ * control de la partida referencian. Su formato:
+ * <pre>
+ * MAGIA_MUROS, ancho, alto, cantidad de palabras, palabras (long)..., CRC32 de todo lo anterior
+ * </pre>
+ */
+public class PuntoControl {
+    static final int MAGIA = 0x4D545843; // "MTXC"
+    static final int VERSION = 3;
+    static final int MAGIA_MUROS = 0x4D54584D; // "MTXM"
+
+    static final int NEO_VIVO = 1;
+    static final int NEO_GANO = 2;
+    static final int CAMPO_PERSECUCION = 1;
+    static final int AGENTES_JERARQUICOS = 2;
+    static final int DETERMINISTA = 4;
+
+    private final int ancho;
+    private final int alto;
+    private final int turno;
+    private final long semilla;
+    private final long estadoGenerador;
+    private final ConfiguracionPartida configuracion;
+    private final int celdaNeo;
+    private final boolean neoVivo;
+    private final boolean neoGano;
+    private final int[] celdasMuros;
+    private final int[] celdasTelefonos;
+    private final boolean[] telefonosUsados;
+    private final int[] idsAgentes;
+    private final int[] celdasAgentes;
+    private final boolean[] agentesVivos;
+
+    public PuntoControl(int ancho, int alto, int turno, long semilla, long estadoGenerador,
+                        ConfiguracionPartida configuracion, int celdaNeo, boolean neoVivo, boolean neoGano,
+                        int[] celdasMuros, int[] celdasTelefonos, boolean[] telefonosUsados,
+                        int[] idsAgentes, int[] celdasAgentes, boolean[] agentesVivos) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.turno = turno;
+        this.semilla = semilla;
+        this.estadoGenerador = estadoGenerador;
+        this.configuracion = configuracion;
+        this.celdaNeo = celdaNeo;
+        this.neoVivo = neoVivo;
+        this.neoGano = neoGano;
+        this.celdasMuros = celdasMuros;
+        this.celdasTelefonos = celdasTelefonos;
+        this.telefonosUsados = telefonosUsados;
+        this.idsAgentes = idsAgentes;
+        this.celdasAgentes = celdasAgentes;
+        this.agentesVivos = agentesVivos;
+    }
+
+    public static PuntoControl cargar(Path archivo) throws IOException {
+        ByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE || canal.size() < 8) {
+                throw new IOException("Tamaño de punto de control inválido: " + canal.size() + " bytes");
+            }
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (datos.getInt() != MAGIA) {
+            throw new IOException("El archivo no es un punto de control: " + archivo);
+        }
+        int version = datos.getInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de punto de control no soportada: " + version);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(datos.duplicate().position(0).limit(datos.limit() - 4));
+        if ((int) crc.getValue() != datos.getInt(datos.limit() - 4)) {
+            throw new IOException("El punto de control está dañado (CRC incorrecto): " + archivo);
+        }
+
+        int ancho = datos.getInt();
+        int alto = datos.getInt();
+        int turno = datos.getInt();
+        long semilla = datos.getLong();
+        long estadoGenerador = datos.getLong();
+        EstrategiaNeo estrategia = EstrategiaNeo.values()[datos.get()];
+        ModoEjecucion modo = ModoEjecucion.values()[datos.get()];
+        int banderas = datos.get();
+        int maxTurnos = datos.getInt();
+        int[] penalizaciones = new int[datos.getInt()];
+        for (int d = 0; d < penalizaciones.length; d++) {
+            penalizaciones[d] = datos.getInt();
+        }
+        ConfiguracionPartida configuracion = new ConfiguracionPartida(estrategia, modo,
+                new NucleoAmenaza(penalizaciones), maxTurnos, (banderas & CAMPO_PERSECUCION) != 0,
+                (banderas & AGENTES_JERARQUICOS) != 0, (banderas & DETERMINISTA) != 0);
+        int celdaNeo = datos.getInt();
+        int banderasNeo = datos.get();
+
+        byte[] nombreCapa = new byte[datos.getShort() & 0xFFFF];
+        datos.get(nombreCapa);
+        int crcCapa = datos.getInt();
+        int[] celdasMuros = cargarMuros(archivo.resolveSibling(new String(nombreCapa, StandardCharsets.UTF_8)),
+                crcCapa, ancho, alto);
+
+        int cantidadTelefonos = datos.getInt();
+        int[] celdasTelefonos = new int[cantidadTelefonos];
+        boolean[] telefonosUsados = new boolean[cantidadTelefonos];
+        for (int i = 0; i < cantidadTelefonos; i++) {
+            celdasTelefonos[i] = datos.getInt();
+            telefonosUsados[i] = datos.get() != 0;
+        }
+        int cantidadAgentes = datos.getInt();
+        int[] idsAgentes = new int[cantidadAgentes];
+        int[] celdasAgentes = new int[cantidadAgentes];
+        boolean[] agentesVivos = new boolean[cantidadAgentes];
+        for (int i = 0; i < cantidadAgentes; i++) {
+            idsAgentes[i] = datos.getInt();
+            celdasAgentes[i] = datos.getInt();
+            agentesVivos[i] = datos.get() != 0;
+        }
+
+        return new PuntoControl(ancho, alto, turno, semilla, estadoGenerador, configuracion, celdaNeo,
+                (banderasNeo & NEO_VIVO) != 0, (banderasNeo & NEO_GANO) != 0,
+                celdasMuros, celdasTelefonos, telefonosUsados, idsAgentes, celdasAgentes, agentesVivos);
+    }
+
+    /**
+     * Lee la capa de muros y devuelve las celdas con muro; falla si no es la que el punto de control referencia
+     */
+    private static int[] cargarMuros(Path capa, int crcEsperado, int ancho, int alto) throws IOException {
+        ByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(capa, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE || canal.size() < 20) {
+                throw new IOException("Tamaño de capa de muros inválido: " + canal.size() + " bytes");
+            }
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        int crc = datos.getInt(datos.limit() - 4);
+        CRC32 calculado = new CRC32();
+        calculado.update(datos.duplicate().position(0).limit(datos.limit() - 4));
+        if ((int) calculado.getValue() != crc || crc != crcEsperado) {
+            throw new IOException("La capa de muros está dañada o no es la de este punto de control: " + capa);
+        }
+        int palabras = (int) (((long) ancho * alto + 63) >>> 6);
+        if (datos.getInt() != MAGIA_MUROS || datos.getInt() != ancho || datos.getInt() != alto
+                || datos.getInt() != palabras) {
+            throw new IOException("La capa de muros no corresponde a un tablero de " + ancho + "x" + alto + ": " + capa);
+        }
+        long[] muros = new long[palabras];
+        datos.asLongBuffer().get(muros);
+
+        int cantidad = 0;
+        for (long palabra : muros) {
+            cantidad += Long.bitCount(palabra);
+        }
+        int[] celdas = new int[cantidad];
+        int i = 0;
+        for (int palabra = 0; palabra < muros.length; palabra++) {
+            for (long bits = muros[palabra]; bits != 0; bits &= bits - 1) {
+                celdas[i++] = (palabra << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return celdas;
+    }
+
+    // Getters
+    public int getAncho() {
+        return ancho;
+    }
+
+    public int getAlto() {
+        return alto;
+    }
+
+    public int getTurno() {
+        return turno;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public long getEstadoGenerador() {
+        return estadoGenerador;
+    }
+
+    public ConfiguracionPartida getConfiguracion() {
+        return configuracion;
+    }
+
+    public int getCeldaNeo() {
+        return celdaNeo;
+    }
+
+    public boolean isNeoVivo() {
+        return neoVivo;
+    }
+
+    public boolean isNeoGano() {
+        return neoGano;
+    }
+
+    public int getCantidadMuros() {
+        return celdasMuros.length;
+    }
+
+    public int celdaMuro(int i) {
+        return celdasMuros[i];
+    }
+
+    public int getCantidadTelefonos() {
+        return celdasTelefonos.length;
+    }
+
+    public int celdaTelefono(int i) {
+        return celdasTelefonos[i];
+    }
+
+    public boolean isTelefonoUsado(int i) {
+        return telefonosUsados[i];
+    }
+
+    public int getCantidadAgentes() {
+        return idsAgentes.length;
+    }
+
+    public int idAgente(int i) {
+        return idsAgentes[i];
+    }
+
+    public int celdaAgente(int i) {
+        return celdasAgentes[i];
+    }
+
+    public boolean isAgenteVivo(int i) {
+        return agentesVivos[i];
+    }
+}
@@ -0,0 +1,238 @@
+package matrix;
+
+import java.io.PrintStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dibuja el tablero en consola desde su propio hilo, fuera del camino crítico del turno.
+ *
+ * La simulación solo deja la instantánea del turno en una cola acotada y sigue.
+ * Cada cuadro se arma en un StringBuilder reutilizable y se escribe de una sola vez.
+ * Si la terminal no da abasto se descarta el cuadro más viejo pendiente en lugar
+ * de frenar a los personajes. En modo ANSI, después del primer cuadro solo se
+ * reescriben las celdas que cambiaron, moviendo el cursor hasta cada una.
+ */
+public class RenderizadorTablero {
+    private static final int CAPACIDAD_COLA = 2;
+    private static final String ESC = "\033[";
+    // Filas (desde 1) del encabezado y de la primera fila del tablero dentro de un cuadro completo
+    private static final int FILA_TITULO = 3;
+    private static final int FILA_TABLERO = 7;
+    // Columna de la primera celda: "d │ " ocupa cuatro caracteres
+    private static final int COLUMNA_TABLERO = 5;
+
+    private final Mundo mundo;
+    private final boolean ansi;
+    // Bitácora que se vacía antes de cada cuadro para que los mensajes del turno salgan primero
+    private final BusEventos eventos;
+    private final BlockingQueue<InstantaneaMundo> pendientes;
+    private final StringBuilder marco;
+    private final char[] celdas;
+    // Último cuadro efectivamente dibujado, para el modo ANSI
+    private final char[] dibujadas;
+    private boolean hayCuadroPrevio;
+    private final AtomicLong cuadrosDescartados;
+    private volatile boolean cerrado;
+    private Thread hilo;
+    private MetricasJuego metricas;
+
+    public RenderizadorTablero(Mundo mundo, boolean ansi, BusEventos eventos) {
+        this.mundo = mundo;
+        this.ansi = ansi;
+        this.eventos = eventos;
+        this.pendientes = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+        this.marco = new StringBuilder();
+        this.celdas = new char[mundo.getCeldas()];
+        this.dibujadas = new char[mundo.getCeldas()];
+        this.cuadrosDescartados = new AtomicLong();
+    }
+
+    public void setMetricas(MetricasJuego metricas) {
+        this.metricas = metricas;
+    }
+
+    /**
+     * Arranca el hilo que dibuja los turnos publicados
+     */
+    public void iniciar() {
+        cerrado = false;
+        hilo = new Thread(this::dibujarPendientes, "renderizador-matrix");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Encola el turno para dibujarlo. Nunca bloquea: si la cola está llena se
+     * descarta el cuadro más viejo.
+     */
+    public void publicar(InstantaneaMundo vista) {
+        while (!pendientes.offer(vista)) {
+            if (pendientes.poll() != null) {
+                cuadrosDescartados.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Dibuja lo que quede pendiente y detiene el hilo
+     */
+    public void cerrar() throws InterruptedException {
+        cerrado = true;
+        if (hilo != null) {
+            hilo.join();
+            hilo = null;
+        }
+    }
+
+    public long getCuadrosDescartados() {
+        return cuadrosDescartados.get();
+    }
+
+    /**
+     * Dibuja solo el tablero en el hilo que llama (tablero inicial y mediciones)
+     */
+    public void dibujar(InstantaneaMundo vista) {
+        long inicio = System.nanoTime();
+        marco.setLength(0);
+        llenarCeldas(vista);
+        agregarTablero();
+        escribir();
+        if (metricas != null) {
+            metricas.registrarRenderizado(System.nanoTime() - inicio);
+        }
+    }
+
+    private void dibujarPendientes() {
+        try {
+            while (!cerrado || !pendientes.isEmpty()) {
+                InstantaneaMundo vista = pendientes.poll(50, TimeUnit.MILLISECONDS);
+                if (vista != null) {
+                    dibujarTurno(vista);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dibujarTurno(InstantaneaMundo vista) {
+        long inicio = System.nanoTime();
+        marco.setLength(0);
+        llenarCeldas(vista);
+
+        if (ansi && hayCuadroPrevio) {
+            agregarDiferencias(vista);
+        } else {
+            if (ansi) {
+                // Borra la pantalla y vuelve al inicio: el cuadro completo queda en posiciones fijas
+                marco.append(ESC).append("2J").append(ESC).append('H');
+            }
+            marco.append("--- Todos aplicaron su movimiento ---\n");
+            agregarTitulo(vista);
+            agregarTablero();
+            System.arraycopy(celdas, 0, dibujadas, 0, celdas.length);
+            hayCuadroPrevio = true;
+        }
+        // La escritura de la bitácora no cuenta como tiempo de dibujo
+        long armado = System.nanoTime() - inicio;
+        if (eventos != null) {
+            eventos.vaciar();
+        }
+        inicio = System.nanoTime();
+        escribir();
+        if (metricas != null) {
+            metricas.registrarRenderizado(armado + System.nanoTime() - inicio);
+        }
+    }
+
+    private void agregarTitulo(InstantaneaMundo vista) {
+        marco.append("\n========== TURNO ").append(vista.getTurno()).append(" ==========\n");
+    }
+
+    /**
+     * Reescribe el título y las celdas que cambiaron desde el último cuadro dibujado
+     */
+    private void agregarDiferencias(InstantaneaMundo vista) {
+        marco.append(ESC).append(FILA_TITULO).append(";1H").append(ESC).append('K');
+        marco.append("========== TURNO ").append(vista.getTurno()).append(" ==========");
+
+        int ancho = mundo.getAncho();
+        for (int celda = 0; celda < celdas.length; celda++) {
+            if (celdas[celda] != dibujadas[celda]) {
+                marco.append(ESC).append(FILA_TABLERO + celda / ancho).append(';')
+                     .append(COLUMNA_TABLERO + 2 * (celda % ancho)).append('H')
+                     .append(celdas[celda]);
+                dibujadas[celda] = celdas[celda];
+            }
+        }
+        // El cursor queda debajo de la leyenda
+        marco.append(ESC).append(FILA_TABLERO + mundo.getAlto() + 3).append(";1H");
+    }
+
+    /**
+     * Arma el contenido de cada celda: teléfonos y muros, Neo encima y los agentes al final
+     */
+    private void llenarCeldas(InstantaneaMundo vista) {
+        for (int y = 0; y < mundo.getAlto(); y++) {
+            for (int x = 0; x < mundo.getAncho(); x++) {
+                char simbolo = '.';
+                if (vista.hayTelefono(x, y)) {
+                    simbolo = 'T';
+                }
+                if (vista.hayMuro(x, y)) {
+                    simbolo = 'M';
+                }
+                celdas[mundo.indice(x, y)] = simbolo;
+            }
+        }
+        if (vista.estaVivo(0)) {
+            celdas[vista.celda(0)] = 'N';
+        }
+        for (int ranura = 1; ranura < vista.getCantidadPersonajes(); ranura++) {
+            if (vista.estaVivo(ranura)) {
+                celdas[vista.celda(ranura)] = 'A';
+            }
+        }
+    }
+
+    private void agregarTablero() {
+        int ancho = mundo.getAncho();
+        // Las columnas se rotulan con su último dígito para tableros de cualquier ancho
+        marco.append("\n   ");
+        for (int x = 0; x < ancho; x++) {
+            marco.append(' ').append(x % 10);
+        }
+        marco.append("\n  ┌─");
+        for (int x = 0; x < ancho; x++) {
+            marco.append("──");
+        }
+        marco.append("┐\n");
+
+        for (int y = 0; y < mundo.getAlto(); y++) {
+            marco.append(y % 10).append(" │ ");
+            int fila = y * ancho;
+            for (int x = 0; x < ancho; x++) {
+                marco.append(celdas[fila + x]).append(' ');
+            }
+            marco.append("│\n");
+        }
+
+        marco.append("  └─");
+        for (int x = 0; x < ancho; x++) {
+            marco.append("──");
+        }
+        marco.append("┘\n");
+        marco.append("\nLeyenda: N=Neo | A=Agente | T=Teléfono | M=Muro | .=Vacío\n");
+    }
+
+    /**
+     * Una sola escritura por cuadro
+     */
+    private void escribir() {
+        PrintStream salida = System.out;
+        byte[] bytes = marco.toString().getBytes(salida.charset());
+        salida.write(bytes, 0, bytes.length);
+        salida.flush();
+    }
+}
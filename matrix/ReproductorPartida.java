@@ -0,0 +1,388 @@
+package matrix;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Reproduce una partida grabada por DiarioPartida sin volver a correr los hilos.
+ * El archivo se lee a través de una ventana mapeada en memoria que se mueve a
+ * medida que se avanza, así que un diario de más de 2 GB se reproduce igual que
+ * uno chico. Cada turno se reconstruye aplicando sus registros sobre un arreglo de
+ * celdas por ranura; para saltar a un turno se parte del fotograma clave anterior
+ * más cercano.
+ *
+ * Uso: java matrix.ReproductorPartida archivo [turno]
+ * Sin turno reproduce la partida completa y muestra la velocidad de reproducción.
+ */
+public final class ReproductorPartida implements Closeable {
+    // Moverla cuesta un mapeo nuevo, así que se hace cada cientos de MB al reproducir de corrido
+    private static final int TAMANIO_VENTANA = 1 << 28;
+
+    private final FileChannel canal;
+    private final long tamanioArchivo;
+    private final int tamanioVentana;
+    private MappedByteBuffer ventana;
+    private long inicioVentana;
+
+    private final Mundo mundo;
+    private final int ranuras;
+    private final long[] muros;
+    private final long[] telefonosIniciales;
+    private final int[] celdasIniciales;
+    private final int turnoInicial;
+    private final long inicioRegistros;
+    private final int[] turnosClave;
+    private final long[] desplazamientosClave;
+    private final int turnos;
+
+    // Estado reconstruido hasta el turno actual
+    private final int[] celdas;
+    private final long[] telefonos;
+    private boolean neoVivo;
+    private boolean neoEscapo;
+    private int captor;
+    private int turno;
+    private long posicion;
+    private long movimientosAplicados;
+
+    public ReproductorPartida(Path archivo) throws IOException {
+        this(archivo, TAMANIO_VENTANA);
+    }
+
+    /**
+     * Con una ventana más chica, para probar los cambios de ventana sin escribir gigas
+     */
+    ReproductorPartida(Path archivo, int tamanioVentana) throws IOException {
+        if (tamanioVentana < DiarioPartida.BYTES_REGISTRO) {
+            throw new IllegalArgumentException("Ventana demasiado chica: " + tamanioVentana);
+        }
+        this.tamanioVentana = tamanioVentana;
+        canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        try {
+            tamanioArchivo = canal.size();
+            mapear(0);
+            if (entero(0) != DiarioPartida.MAGIA) {
+                throw new IOException("El archivo no es un diario de partida: " + archivo);
+            }
+            int version = entero(4);
+            if (version != DiarioPartida.VERSION) {
+                throw new IOException("Versión de diario no soportada: " + version);
+            }
+            mundo = new Mundo(entero(8), entero(12));
+            ranuras = entero(16);
+            // En 20 está el intervalo de fotogramas clave: el índice ya dice dónde está cada uno
+            turnoInicial = entero(24);
+            long pos = 28;
+
+            int palabras = (mundo.getCeldas() + 63) >>> 6;
+            muros = new long[palabras];
+            for (int i = entero(pos); i > 0; i--) {
+                pos += 4;
+                activar(muros, entero(pos));
+            }
+            pos += 4;
+            telefonosIniciales = new long[palabras];
+            for (int i = entero(pos); i > 0; i--) {
+                pos += 4;
+                activar(telefonosIniciales, entero(pos));
+            }
+            pos += 4;
+            celdasIniciales = new int[ranuras];
+            for (int ranura = 0; ranura < ranuras; ranura++) {
+                celdasIniciales[ranura] = entero(pos);
+                pos += 4;
+            }
+            inicioRegistros = pos;
+
+            // El índice está al final; justo antes queda el registro FIN con la cantidad de turnos
+            long indice = enteroLargo(tamanioArchivo - 8);
+            int cantidadClaves = entero(indice);
+            turnosClave = new int[cantidadClaves];
+            desplazamientosClave = new long[cantidadClaves];
+            for (int i = 0; i < cantidadClaves; i++) {
+                turnosClave[i] = entero(indice + 4 + 12L * i);
+                desplazamientosClave[i] = enteroLargo(indice + 8 + 12L * i);
+            }
+            turnos = entero(indice - 4);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+
+        celdas = new int[ranuras];
+        telefonos = new long[muros.length];
+        reiniciar();
+    }
+
+    /**
+     * Libera el archivo; después no se puede seguir reproduciendo
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    public Mundo getMundo() {
+        return mundo;
+    }
+
+    public int getRanuras() {
+        return ranuras;
+    }
+
+    public int getTurnos() {
+        return turnos;
+    }
+
+    public int getTurno() {
+        return turno;
+    }
+
+    /**
+     * Turno en que empieza la grabación (distinto de 0 si la partida se reanudó)
+     */
+    public int getTurnoInicial() {
+        return turnoInicial;
+    }
+
+    public int celda(int ranura) {
+        return celdas[ranura];
+    }
+
+    public boolean isNeoVivo() {
+        return neoVivo;
+    }
+
+    public boolean isNeoEscapo() {
+        return neoEscapo;
+    }
+
+    /**
+     * Ranura del agente que capturó a Neo, o -1 si no hubo captura hasta el turno actual
+     */
+    public int getCaptor() {
+        return captor;
+    }
+
+    public long getMovimientosAplicados() {
+        return movimientosAplicados;
+    }
+
+    /**
+     * Vuelve al estado en que empezó la grabación
+     */
+    public void reiniciar() {
+        System.arraycopy(celdasIniciales, 0, celdas, 0, ranuras);
+        System.arraycopy(telefonosIniciales, 0, telefonos, 0, telefonos.length);
+        neoVivo = true;
+        neoEscapo = false;
+        captor = -1;
+        turno = turnoInicial;
+        posicion = inicioRegistros;
+    }
+
+    /**
+     * Avanza un turno. Devuelve false si la partida ya terminó.
+     */
+    public boolean avanzarTurno() {
+        if (turno >= turnos) {
+            return false;
+        }
+        aplicarHasta(turno + 1);
+        return true;
+    }
+
+    /**
+     * Deja el estado tal como quedó al cerrar el turno pedido, partiendo del
+     * fotograma clave más cercano si queda más cerca que el turno actual
+     */
+    public void irATurno(int objetivo) {
+        objetivo = Math.max(turnoInicial, Math.min(objetivo, turnos));
+        int clave = buscarClave(objetivo);
+        boolean claveMasCerca = clave >= 0 && (turnosClave[clave] > turno || objetivo < turno);
+        if (claveMasCerca) {
+            cargarClave(clave);
+        } else if (objetivo < turno) {
+            reiniciar();
+        }
+        aplicarHasta(objetivo);
+    }
+
+    /**
+     * Instantánea del turno actual, para dibujarla con RenderizadorTablero
+     */
+    public InstantaneaMundo instantanea() {
+        long[] vivos = new long[(ranuras + 63) >>> 6];
+        for (int ranura = 0; ranura < ranuras; ranura++) {
+            vivos[ranura >>> 6] |= 1L << ranura;
+        }
+        if (!neoVivo) {
+            vivos[0] &= ~1L;
+        }
+        return InstantaneaMundo.reconstruir(mundo, turno, celdas, vivos, muros, telefonos);
+    }
+
+    /**
+     * Aplica registros hasta el último del turno pedido; el marcador del turno siguiente no se consume
+     */
+    private void aplicarHasta(int objetivo) {
+        int[] celdas = this.celdas;
+        MappedByteBuffer datos = ventana;
+        long base = inicioVentana;
+        long pos = posicion;
+        long movimientos = 0;
+        recorrido:
+        while (true) {
+            if (pos < base || pos + DiarioPartida.BYTES_REGISTRO > base + datos.limit()) {
+                datos = ventana(pos, DiarioPartida.BYTES_REGISTRO);
+                base = inicioVentana;
+            }
+            int relativa = (int) (pos - base);
+            int cabecera = datos.getInt(relativa);
+            int valor = datos.getInt(relativa + 4);
+            int ranura = cabecera & (DiarioPartida.MAX_RANURAS - 1);
+            switch (cabecera >>> 24) {
+                case DiarioPartida.MOVIMIENTO:
+                    celdas[ranura] = valor;
+                    movimientos++;
+                    break;
+                case DiarioPartida.TURNO:
+                    if (valor > objetivo) {
+                        break recorrido;
+                    }
+                    turno = valor;
+                    break;
+                case DiarioPartida.CLAVE:
+                    // Las posiciones del fotograma ya coinciden con las reconstruidas
+                    pos += (long) ranuras * DiarioPartida.BYTES_REGISTRO;
+                    break;
+                case DiarioPartida.CAPTURA:
+                    neoVivo = false;
+                    captor = ranura;
+                    break;
+                case DiarioPartida.TELEFONO:
+                    telefonos[valor >>> 6] &= ~(1L << valor);
+                    neoEscapo = true;
+                    break;
+                default:
+                    // FIN: se queda apuntando a él para que las próximas llamadas no avancen
+                    break recorrido;
+            }
+            pos += DiarioPartida.BYTES_REGISTRO;
+        }
+        posicion = pos;
+        movimientosAplicados += movimientos;
+    }
+
+    /**
+     * Fotograma clave de turno más alto que no pasa del objetivo, o -1
+     */
+    private int buscarClave(int objetivo) {
+        int bajo = 0;
+        int alto = turnosClave.length - 1;
+        int encontrado = -1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (turnosClave[medio] <= objetivo) {
+                encontrado = medio;
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return encontrado;
+    }
+
+    /**
+     * Los fotogramas solo guardan posiciones: capturas y teléfonos ocurren en el
+     * último turno, después del último fotograma, así que se vuelven al estado inicial
+     */
+    private void cargarClave(int clave) {
+        long pos = desplazamientosClave[clave] + DiarioPartida.BYTES_REGISTRO;
+        for (int ranura = 0; ranura < ranuras; ranura++) {
+            celdas[ranura] = entero(pos + 4);
+            pos += DiarioPartida.BYTES_REGISTRO;
+        }
+        System.arraycopy(telefonosIniciales, 0, telefonos, 0, telefonos.length);
+        neoVivo = true;
+        neoEscapo = false;
+        captor = -1;
+        turno = turnosClave[clave];
+        posicion = pos;
+    }
+
+    private int entero(long pos) {
+        return ventana(pos, 4).getInt((int) (pos - inicioVentana));
+    }
+
+    private long enteroLargo(long pos) {
+        return ventana(pos, 8).getLong((int) (pos - inicioVentana));
+    }
+
+    /**
+     * Ventana que contiene los bytes [pos, pos + bytes); si la actual no los tiene se mapea una que empieza en pos
+     */
+    private MappedByteBuffer ventana(long pos, int bytes) {
+        if (pos < inicioVentana || pos + bytes > inicioVentana + ventana.limit()) {
+            mapear(pos);
+        }
+        return ventana;
+    }
+
+    private void mapear(long pos) {
+        if (pos < 0 || pos >= tamanioArchivo) {
+            throw new IndexOutOfBoundsException("Posición fuera del diario: " + pos);
+        }
+        try {
+            ventana = canal.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(tamanioVentana, tamanioArchivo - pos));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el diario", e);
+        }
+        inicioVentana = pos;
+    }
+
+    private static void activar(long[] capa, int celda) {
+        capa[celda >>> 6] |= 1L << celda;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Uso: java matrix.ReproductorPartida archivo [turno]");
+            return;
+        }
+        try (ReproductorPartida reproductor = new ReproductorPartida(Paths.get(args[0]))) {
+            mostrar(reproductor, args);
+        }
+    }
+
+    private static void mostrar(ReproductorPartida reproductor, String[] args) {
+        RenderizadorTablero renderizador = new RenderizadorTablero(reproductor.getMundo(), false, null);
+
+        if (args.length >= 2) {
+            reproductor.irATurno(Integer.parseInt(args[1]));
+        } else {
+            // Varias pasadas completas: la primera también paga la carga de las páginas del archivo
+            long mejor = Long.MAX_VALUE;
+            for (int pasada = 0; pasada < 5; pasada++) {
+                reproductor.reiniciar();
+                long inicio = System.nanoTime();
+                while (reproductor.avanzarTurno()) {
+                }
+                mejor = Math.min(mejor, System.nanoTime() - inicio);
+            }
+            long movimientos = reproductor.getMovimientosAplicados() / 5;
+            System.out.println(String.format("Turnos: %d | Movimientos: %d | %.1f millones de movimientos/s",
+                    reproductor.getTurnos(), movimientos, movimientos / (mejor / 1e3)));
+        }
+
+        System.out.println("\n========== TURNO " + reproductor.getTurno() + " de " + reproductor.getTurnos() + " ==========");
+        renderizador.dibujar(reproductor.instantanea());
+        if (!reproductor.isNeoVivo()) {
+            System.out.println("Agente-" + reproductor.getCaptor() + " capturó a Neo");
+        } else if (reproductor.isNeoEscapo()) {
+            System.out.println("Neo llegó a un teléfono y escapó de Matrix");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package matrix;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Modo sin consola: juega muchas partidas seguidas a máxima velocidad
+ * (sin pausas ni impresión del tablero) y muestra solo resultados agregados.
+ *
+ * Uso: java matrix.MatrixGame --headless [--partidas N] [--ancho W] [--alto H]
+ *      [--agentes A] [--muros M] [--telefonos T] [--max-turnos K]
+ *      [--estrategia TELEFONO_MAS_CERCANO|MULTIOBJETIVO|A_ESTRELLA|INCREMENTAL|JERARQUICO]
+ *      [--bfs] [--jerarquico] [--amenaza P1,P2,...]
+ *      [--semilla S] [--determinista] [--modo HILOS|VIRTUALES|POOL]
+ *      [--eventos APAGADO|RESUMEN|MOVIMIENTOS|DETALLE] [--diario ARCHIVO]
+ *      [--guardar ARCHIVO] [--cada N] [--reanudar ARCHIVO] [--metricas SEGUNDOS]
+ *
+ * Con --diario cada partida se graba para ReproductorPartida; si se juega más
+ * de una, el número de partida se agrega al nombre del archivo.
+ *
+ * Con --guardar se escribe un punto de control cada N turnos (100 por defecto).
+ * Con --reanudar todas las partidas continúan desde el mismo punto de control,
+ * así que las opciones que generan el mundo (tamaño, agentes, muros...) se ignoran.
+ * La estrategia, el modo, la amenaza, el máximo de turnos, --bfs, --jerarquico y
+ * --determinista se toman del punto de control; si se pasan con otro valor la
+ * simulación se rechaza en lugar de jugar con reglas distintas a las guardadas.
+ *
+ * Con --metricas se miden los turnos de todas las partidas: se exponen por JMX y
+ * se imprime un resumen cada tantos segundos y otro al final.
+ *
+ * Con --jerarquico los agentes buscan a Neo con el mapa jerárquico (HPA*);
+ * Neo lo usa con --estrategia JERARQUICO.
+ *
+ * Con --amenaza se cambian las penalizaciones que suma cada agente a las celdas
+ * a distancia 1, 2, ... de él (50,10 por defecto).
+ *
+ * Con --semilla y --determinista dos ejecuciones con la misma semilla juegan
+ * exactamente las mismas partidas, lo que permite comparar versiones del código.
+ */
+public class SimulacionHeadless {
+    private int partidas = 100;
+    private int ancho = 10;
+    private int alto = 10;
+    private int agentes = 4;
+    private int muros = 10;
+    private int telefonos = 2;
+    private int maxTurnos = 1000;
+    private EstrategiaNeo estrategia = EstrategiaNeo.TELEFONO_MAS_CERCANO;
+    private boolean usarCampoPersecucion = true;
+    private boolean agentesJerarquicos = false;
+    private NucleoAmenaza nucleoAmenaza = NucleoAmenaza.porDefecto();
+    private long semilla = new Random().nextLong();
+    private boolean determinista = false;
+    private ModoEjecucion modo = ModoEjecucion.HILOS;
+    private NivelEventos nivelEventos = NivelEventos.APAGADO;
+    private String archivoDiario;
+    private String archivoPuntoControl;
+    private int turnosEntrePuntosControl = 100;
+    private String archivoReanudar;
+    private int segundosMetricas; // 0 = sin métricas
+    private MetricasJuego metricas;
+    private GeneradorAleatorio semillasPartidas;
+    // Opciones escritas en la línea de comandos, para distinguirlas de los valores por defecto
+    private final Set<String> opcionesDadas = new HashSet<>();
+
+    public static void main(String[] args) {
+        SimulacionHeadless simulacion = new SimulacionHeadless();
+        simulacion.leerArgumentos(args);
+        simulacion.ejecutar();
+    }
+
+    private void leerArgumentos(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String opcion = args[i];
+            opcionesDadas.add(opcion);
+            if (opcion.equals("--bfs")) {
+                usarCampoPersecucion = false;
+                continue;
+            }
+            if (opcion.equals("--jerarquico")) {
+                agentesJerarquicos = true;
+                continue;
+            }
+            if (opcion.equals("--determinista")) {
+                determinista = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Falta el valor de " + opcion);
+            }
+            String valor = args[++i];
+            switch (opcion) {
+                case "--partidas": partidas = Integer.parseInt(valor); break;
+                case "--ancho": ancho = Integer.parseInt(valor); break;
+                case "--alto": alto = Integer.parseInt(valor); break;
+                case "--agentes": agentes = Integer.parseInt(valor); break;
+                case "--muros": muros = Integer.parseInt(valor); break;
+                case "--telefonos": telefonos = Integer.parseInt(valor); break;
+                case "--max-turnos": maxTurnos = Integer.parseInt(valor); break;
+                case "--estrategia": estrategia = EstrategiaNeo.valueOf(valor.toUpperCase()); break;
+                case "--semilla": semilla = Long.parseLong(valor); break;
+                case "--modo": modo = ModoEjecucion.valueOf(valor.toUpperCase()); break;
+                case "--eventos": nivelEventos = NivelEventos.valueOf(valor.toUpperCase()); break;
+                case "--diario": archivoDiario = valor; break;
+                case "--guardar": archivoPuntoControl = valor; break;
+                case "--cada": turnosEntrePuntosControl = Integer.parseInt(valor); break;
+                case "--reanudar": archivoReanudar = valor; break;
+                case "--metricas": segundosMetricas = Integer.parseInt(valor); break;
+                case "--amenaza": nucleoAmenaza = NucleoAmenaza.desdeTexto(valor); break;
+                default: throw new IllegalArgumentException("Opción desconocida: " + opcion);
+            }
+        }
+    }
+
+    /**
+     * Juega todas las partidas una detrás de otra y muestra el resumen
+     */
+    private void ejecutar() {
+        int victoriasNeo = 0;
+        long turnosTotales = 0;
+        // Cada partida recibe su propia semilla derivada de la semilla base
+        semillasPartidas = new GeneradorAleatorio(semilla);
+        if (segundosMetricas > 0) {
+            iniciarMetricas();
+        }
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < partidas; i++) {
+            MatrixGame juego = crearPartida();
+            if (archivoDiario != null) {
+                juego.setArchivoDiario(Paths.get(partidas == 1 ? archivoDiario : archivoDiario + "." + (i + 1)));
+            }
+            juego.jugarSinConsola();
+
+            if (juego.neoEscapo()) {
+                victoriasNeo++;
+            }
+            turnosTotales += juego.getTurnoActual();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.out.println("=== RESULTADOS (modo sin consola) ===");
+        System.out.println("Tablero: " + ancho + "x" + alto + " | Agentes: " + agentes
+                + " | Estrategia de Neo: " + estrategia + " | Modo: " + modo);
+        System.out.println("Semilla: " + semilla + (determinista || modo == ModoEjecucion.POOL ? " (resolución determinista)" : ""));
+        System.out.println("Partidas jugadas: " + partidas);
+        System.out.println(String.format("Victorias de Neo: %d (%.2f%%)",
+                victoriasNeo, partidas == 0 ? 0.0 : 100.0 * victoriasNeo / partidas));
+        System.out.println(String.format("Turnos promedio: %.2f",
+                partidas == 0 ? 0.0 : (double) turnosTotales / partidas));
+        System.out.println(String.format("Partidas por segundo: %.1f", partidas / segundos));
+        if (metricas != null) {
+            System.out.println("=== MÉTRICAS ===");
+            System.out.print(metricas.getResumen());
+        }
+    }
+
+    /**
+     * Registra las métricas en JMX y arranca el hilo que las vuelca periódicamente
+     */
+    private void iniciarMetricas() {
+        metricas = new MetricasJuego();
+        metricas.registrarJmx();
+        Thread volcado = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(segundosMetricas * 1000L);
+                    System.out.print("--- Métricas ---" + System.lineSeparator() + metricas.getResumen());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "metricas-matrix");
+        volcado.setDaemon(true);
+        volcado.start();
+    }
+
+    private MatrixGame crearPartida() {
+        MatrixGame juego;
+        if (archivoReanudar != null) {
+            try {
+                juego = MatrixGame.reanudar(Paths.get(archivoReanudar));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo reanudar desde " + archivoReanudar, e);
+            }
+            adoptarConfiguracion(juego.getConfiguracion());
+        } else {
+            juego = new MatrixGame(ancho, alto);
+        }
+        juego.setSilencioso(true);
+        juego.setPausaMs(0);
+        juego.setCantidadAgentes(agentes);
+        juego.setMaxMuros(muros);
+        juego.setMaxTelefonos(telefonos);
+        juego.setMaxTurnos(maxTurnos);
+        juego.setEstrategiaNeo(estrategia);
+        juego.setNucleoAmenaza(nucleoAmenaza);
+        juego.setUsarCampoPersecucion(usarCampoPersecucion);
+        juego.setAgentesJerarquicos(agentesJerarquicos);
+        if (archivoReanudar == null) {
+            juego.setSemilla(semillasPartidas.siguienteLong());
+        }
+        juego.setResolucionDeterminista(determinista);
+        juego.setModoEjecucion(modo);
+        juego.setNivelEventos(nivelEventos);
+        juego.setMetricas(metricas);
+        if (archivoPuntoControl != null) {
+            juego.setPuntoControl(Paths.get(archivoPuntoControl), turnosEntrePuntosControl);
+        }
+        return juego;
+    }
+
+    /**
+     * Toma la configuración guardada en el punto de control; una opción dada con otro valor es un error
+     */
+    private void adoptarConfiguracion(ConfiguracionPartida guardada) {
+        verificarOpcion("--estrategia", estrategia, guardada.getEstrategiaNeo());
+        verificarOpcion("--modo", modo, guardada.getModoEjecucion());
+        verificarOpcion("--amenaza", nucleoAmenaza, guardada.getNucleoAmenaza());
+        verificarOpcion("--max-turnos", maxTurnos, guardada.getMaxTurnos());
+        verificarOpcion("--bfs", usarCampoPersecucion, guardada.isUsarCampoPersecucion());
+        verificarOpcion("--jerarquico", agentesJerarquicos, guardada.isAgentesJerarquicos());
+        verificarOpcion("--determinista", determinista, guardada.isResolucionDeterminista());
+        estrategia = guardada.getEstrategiaNeo();
+        modo = guardada.getModoEjecucion();
+        nucleoAmenaza = guardada.getNucleoAmenaza();
+        maxTurnos = guardada.getMaxTurnos();
+        usarCampoPersecucion = guardada.isUsarCampoPersecucion();
+        agentesJerarquicos = guardada.isAgentesJerarquicos();
+        determinista = guardada.isResolucionDeterminista();
+    }
+
+    private void verificarOpcion(String opcion, Object dada, Object guardada) {
+        if (opcionesDadas.contains(opcion) && !dada.equals(guardada)) {
+            throw new IllegalArgumentException("El punto de control " + archivoReanudar + " se guardó con otra "
+                    + "configuración (" + opcion + "): " + guardada + " en lugar de " + dada);
+        }
+    }
+}
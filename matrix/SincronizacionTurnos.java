@@ -0,0 +1,72 @@
+package matrix;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Sincroniza los turnos de los hilos de los personajes con un Phaser en árbol.
+ * Cada turno son dos fases seguidas: cálculo (fases pares) y aplicación (impares).
+ *
+ * A diferencia de una barrera cíclica, cada personaje se da de baja apenas deja
+ * de jugar, así que los demás no quedan esperando a alguien que ya no va a llegar.
+ * Los participantes se reparten en sub-phasers de hasta TAMANIO_GRUPO para que
+ * las llegadas no compitan todas por el mismo contador: la raíz solo recibe una
+ * llegada por grupo.
+ */
+public class SincronizacionTurnos {
+    private static final int TAMANIO_GRUPO = 64;
+
+    private final Phaser raiz;
+    private Phaser grupoActual;
+
+    /**
+     * @param alTerminarCalculo se ejecuta una vez cuando todos calcularon
+     * @param alTerminarAplicacion se ejecuta una vez cuando todos aplicaron
+     * @param juegoTerminado se consulta antes de cada turno para cerrar la sincronización
+     */
+    public SincronizacionTurnos(Runnable alTerminarCalculo, Runnable alTerminarAplicacion,
+                                BooleanSupplier juegoTerminado) {
+        this.raiz = new Phaser() {
+            @Override
+            protected boolean onAdvance(int fase, int participantes) {
+                if (participantes == 0) {
+                    return true;
+                }
+                if (fase % 2 == 0) {
+                    // El turno anterior ya se verificó completo: si el juego terminó no hay otro
+                    if (juegoTerminado.getAsBoolean()) {
+                        return true;
+                    }
+                    alTerminarCalculo.run();
+                } else {
+                    alTerminarAplicacion.run();
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Registra un participante más y devuelve el phaser en el que debe llegar.
+     * Debe llamarse antes de iniciar los hilos.
+     */
+    public Phaser registrar() {
+        if (grupoActual == null || grupoActual.getRegisteredParties() >= TAMANIO_GRUPO) {
+            grupoActual = new Phaser(raiz);
+        }
+        grupoActual.register();
+        return grupoActual;
+    }
+
+    /**
+     * Libera de inmediato a todos los que estén esperando; las llegadas posteriores no bloquean
+     */
+    public void terminar() {
+        raiz.forceTermination();
+    }
+
+    public boolean estaTerminada() {
+        return raiz.isTerminated();
+    }
+}
@@ -0,0 +1,60 @@
+package matrix;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Reservas de celdas para el próximo movimiento de los agentes, indexadas por celda.
+ * Una celda se reserva con un compareAndSet sobre su sello, sin claves String ni
+ * bloqueos, y todas las reservas se liberan en O(1) al pasar a un turno nuevo:
+ * una celda está reservada solo si su sello coincide con la generación vigente.
+ */
+public class TablaReservas {
+    private final AtomicIntegerArray sellos;
+    // Solo cambia al cerrar un turno, cuando nadie está reservando
+    private int generacion;
+
+    public TablaReservas(Mundo mundo) {
+        this.sellos = new AtomicIntegerArray(mundo.getCeldas());
+        this.generacion = 1;
+    }
+
+    /**
+     * Intenta reservar la celda para este turno; devuelve false si otro ya la tenía
+     */
+    public boolean reservar(int celda) {
+        int actual = sellos.get(celda);
+        while (actual != generacion) {
+            if (sellos.compareAndSet(celda, actual, generacion)) {
+                return true;
+            }
+            actual = sellos.get(celda);
+        }
+        return false;
+    }
+
+    /**
+     * Igual que reservar, pero sin operación atómica: solo para una pasada secuencial
+     * en la que nadie más reserva (la resolución en orden del coordinador)
+     */
+    public boolean reservarEnOrden(int celda) {
+        if (sellos.getPlain(celda) == generacion) {
+            return false;
+        }
+        sellos.setPlain(celda, generacion);
+        return true;
+    }
+
+    /**
+     * Libera todas las reservas del turno que terminó
+     */
+    public void nuevoTurno() {
+        generacion++;
+        if (generacion == 0) {
+            // Tras dar la vuelta al contador los sellos viejos podrían confundirse con los nuevos
+            for (int i = 0; i < sellos.length(); i++) {
+                sellos.set(i, 0);
+            }
+            generacion = 1;
+        }
+    }
+}
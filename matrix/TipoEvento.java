@@ -0,0 +1,22 @@
+package matrix;
+
+/**
+ * Tipos de eventos del juego, en el orden en que ocurren dentro de un turno
+ * (cálculo, aplicación y verificación) y con el nivel mínimo que los registra.
+ */
+public enum TipoEvento {
+    CONFLICTO_RESERVA(NivelEventos.DETALLE),
+    MOVIMIENTO(NivelEventos.MOVIMIENTOS),
+    CAPTURA(NivelEventos.RESUMEN),
+    TELEFONO_ALCANZADO(NivelEventos.RESUMEN);
+
+    private final NivelEventos nivel;
+
+    TipoEvento(NivelEventos nivel) {
+        this.nivel = nivel;
+    }
+
+    public NivelEventos getNivel() {
+        return nivel;
+    }
+}
@@ -0,0 +1,97 @@
+package matrix;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mueve agentes al azar durante muchos turnos y compara cada celda del campo
+ * incremental con el costo que NucleoAmenaza calcula sumando el vecindario uno por
+ * uno. Hay agentes en la misma celda y pegados (núcleos superpuestos), agentes que
+ * arrancan en los bordes de las bandas, agentes que mueren y muros que cambian.
+ */
+class CampoAmenazaTest {
+    private static final int ANCHO = 50;
+    // No es múltiplo de ninguna cantidad de bandas probada, así que las bandas no son iguales
+    private static final int ALTO = 91;
+    private static final int AGENTES = 40;
+    private static final int TURNOS = 300;
+
+    @ParameterizedTest
+    @CsvSource({"1, 1", "1, 4", "1, 13", "2, 1", "2, 6", "3, 1", "3, 9"})
+    void elCampoIncrementalCoincideConElNucleo(long semilla, int bandas) {
+        Random random = new Random(semilla);
+        Mundo mundo = new Mundo(ANCHO, ALTO);
+        IndiceOcupacion ocupacion = new IndiceOcupacion(mundo);
+        for (int i = 0; i < mundo.getCeldas() / 10; i++) {
+            int celda = random.nextInt(mundo.getCeldas());
+            ocupacion.agregarMuro(mundo.x(celda), mundo.y(celda));
+        }
+        // Radio 3: el núcleo de un agente cubre varias filas a cada lado del borde de una banda
+        NucleoAmenaza nucleo = new NucleoAmenaza(80, 20, 5);
+        CampoAmenaza campo = new CampoAmenaza(mundo, nucleo, bandas);
+
+        AlmacenAgentes agentes = new AlmacenAgentes(mundo, AGENTES);
+        int[] celdas = new int[AGENTES];
+        for (int i = 0; i < AGENTES; i++) {
+            int celda;
+            if (i < bandas) {
+                // Primera fila de cada banda, como las reparte CampoAmenaza
+                celda = mundo.indice(random.nextInt(ANCHO), (int) ((long) i * ALTO / bandas));
+            } else if (i % 5 == 0) {
+                // En la misma celda que otro agente: sus núcleos se suman
+                celda = celdas[random.nextInt(i)];
+            } else {
+                celda = random.nextInt(mundo.getCeldas());
+            }
+            celdas[i] = celda;
+            agentes.agregar(i + 1, mundo.x(celda), mundo.y(celda));
+        }
+
+        PosicionesTurno posiciones = new PosicionesTurno(mundo, AGENTES + 1);
+        List<Telefono> telefonos = new ArrayList<>();
+        InstantaneaMundo vista = null;
+        for (int turno = 0; turno < TURNOS; turno++) {
+            for (int i = 0; i < AGENTES; i++) {
+                int direccion = random.nextInt(5);
+                if (direccion < 4) {
+                    int nx = mundo.x(celdas[i]) + Mundo.DX[direccion];
+                    int ny = mundo.y(celdas[i]) + Mundo.DY[direccion];
+                    if (mundo.contiene(nx, ny) && !ocupacion.hayMuro(nx, ny)) {
+                        celdas[i] = mundo.indice(nx, ny);
+                    }
+                }
+            }
+            if (random.nextInt(15) == 0) {
+                agentes.setVivo(random.nextInt(AGENTES), false);
+            }
+            if (random.nextInt(40) == 0) {
+                int celda = random.nextInt(mundo.getCeldas());
+                if (ocupacion.hayMuro(mundo.x(celda), mundo.y(celda))) {
+                    ocupacion.quitarMuro(mundo.x(celda), mundo.y(celda));
+                } else {
+                    ocupacion.agregarMuro(mundo.x(celda), mundo.y(celda));
+                }
+            }
+
+            posiciones.iniciar(0, 0, 0);
+            for (int i = 0; i < AGENTES; i++) {
+                posiciones.iniciar(i + 1, mundo.x(celdas[i]), mundo.y(celdas[i]));
+            }
+            vista = InstantaneaMundo.tomar(turno, ocupacion, posiciones, agentes, true, telefonos, vista);
+            campo.calcular(vista);
+            assertTrue(campo.estaCalculadoPara(vista));
+
+            for (int celda = 0; celda < mundo.getCeldas(); celda++) {
+                int x = mundo.x(celda);
+                int y = mundo.y(celda);
+                assertEquals(nucleo.costo(vista, x, y), campo.costo(celda),
+                        "turno " + turno + ", celda (" + x + ", " + y + "), " + bandas + " bandas");
+            }
+        }
+        assertTrue(agentes.contarVivos() < AGENTES, "ningún agente murió");
+    }
+}
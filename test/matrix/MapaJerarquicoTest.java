@@ -0,0 +1,125 @@
+package matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+import java.util.function.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sigue paso a paso los caminos de HPA* en mapas aleatorios y los compara con una BFS
+ * exacta: cada paso es una celda vecina libre, se llega al objetivo y el largo no
+ * supera al óptimo en más de FACTOR_MAXIMO.
+ */
+class MapaJerarquicoTest {
+    private static final int SIN_CAMINO = -1;
+    private static final int INFINITO = Integer.MAX_VALUE;
+    // HPA* no es óptimo: pasa por las entradas de los bordes y solo refina el primer tramo
+    private static final double FACTOR_MAXIMO = 1.5;
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 5, 8, 13, 21, 34})
+    void losCaminosSonValidosYCercanosAlOptimo(long semilla) {
+        Random random = new Random(semilla);
+        // Medidas que no son múltiplo de TAMANIO, para que haya clusters incompletos
+        Mundo mundo = new Mundo(90, 75);
+        IndiceOcupacion ocupacion = new IndiceOcupacion(mundo);
+        for (int i = 0; i < mundo.getCeldas() * 3 / 10; i++) {
+            int celda = random.nextInt(mundo.getCeldas());
+            ocupacion.agregarMuro(mundo.x(celda), mundo.y(celda));
+        }
+        MapaJerarquico mapa = new MapaJerarquico(mundo, ocupacion.copiarMuros());
+        ConsultaJerarquica consulta = new ConsultaJerarquica(new EspacioBusqueda(mundo));
+        IntBinaryOperator costo = (x, y) -> ocupacion.hayMuro(x, y) ? INFINITO : 1;
+
+        int caminos = 0;
+        for (int consultaNumero = 0; consultaNumero < 60; consultaNumero++) {
+            int origen = celdaLibre(mundo, ocupacion, random);
+            int[] objetivos = {celdaLibre(mundo, ocupacion, random), celdaLibre(mundo, ocupacion, random)};
+            int optimo = distanciaBfs(mundo, ocupacion, origen, objetivos);
+            if (optimo == 0) {
+                continue;
+            }
+
+            int celda = origen;
+            int pasos = 0;
+            while (celda != objetivos[0] && celda != objetivos[1]) {
+                int paso = mapa.siguientePaso(celda, objetivos, objetivos.length, costo, consulta);
+                if (optimo == SIN_CAMINO) {
+                    assertEquals(SIN_CAMINO, paso, "no hay camino desde " + origen);
+                    break;
+                }
+                assertNotEquals(SIN_CAMINO, paso, "había camino de " + optimo + " pasos desde " + celda);
+                assertEquals(1, Math.abs(mundo.x(paso) - mundo.x(celda)) + Math.abs(mundo.y(paso) - mundo.y(celda)));
+                assertFalse(ocupacion.hayMuro(mundo.x(paso), mundo.y(paso)));
+                celda = paso;
+                pasos++;
+                assertTrue(pasos <= FACTOR_MAXIMO * optimo,
+                        "desde " + origen + ": " + pasos + " pasos sin llegar, el óptimo es " + optimo);
+            }
+            if (optimo != SIN_CAMINO) {
+                caminos++;
+            }
+        }
+        assertTrue(caminos > 0);
+    }
+
+    @Test
+    void enUnTableroSinMurosElCaminoEsOptimo() {
+        Mundo mundo = new Mundo(64, 64);
+        IndiceOcupacion ocupacion = new IndiceOcupacion(mundo);
+        MapaJerarquico mapa = new MapaJerarquico(mundo, ocupacion.copiarMuros());
+        ConsultaJerarquica consulta = new ConsultaJerarquica(new EspacioBusqueda(mundo));
+        int[] objetivos = {mundo.indice(60, 50)};
+
+        int celda = mundo.indice(2, 3);
+        int pasos = 0;
+        while (celda != objetivos[0]) {
+            celda = mapa.siguientePaso(celda, objetivos, 1, (x, y) -> 1, consulta);
+            assertNotEquals(SIN_CAMINO, celda);
+            pasos++;
+        }
+        assertEquals(58 + 47, pasos);
+    }
+
+    private static int celdaLibre(Mundo mundo, IndiceOcupacion ocupacion, Random random) {
+        while (true) {
+            int celda = random.nextInt(mundo.getCeldas());
+            if (!ocupacion.hayMuro(mundo.x(celda), mundo.y(celda))) {
+                return celda;
+            }
+        }
+    }
+
+    /**
+     * Pasos del camino más corto hasta el objetivo más cercano, o SIN_CAMINO
+     */
+    private static int distanciaBfs(Mundo mundo, IndiceOcupacion ocupacion, int origen, int[] objetivos) {
+        int[] distancias = new int[mundo.getCeldas()];
+        Arrays.fill(distancias, SIN_CAMINO);
+        ArrayDeque<Integer> cola = new ArrayDeque<>();
+        distancias[origen] = 0;
+        cola.add(origen);
+        while (!cola.isEmpty()) {
+            int celda = cola.poll();
+            for (int objetivo : objetivos) {
+                if (celda == objetivo) {
+                    return distancias[celda];
+                }
+            }
+            for (int i = 0; i < 4; i++) {
+                int nx = mundo.x(celda) + Mundo.DX[i];
+                int ny = mundo.y(celda) + Mundo.DY[i];
+                if (mundo.contiene(nx, ny) && !ocupacion.hayMuro(nx, ny)
+                        && distancias[mundo.indice(nx, ny)] == SIN_CAMINO) {
+                    distancias[mundo.indice(nx, ny)] = distancias[celda] + 1;
+                    cola.add(mundo.indice(nx, ny));
+                }
+            }
+        }
+        return SIN_CAMINO;
+    }
+}
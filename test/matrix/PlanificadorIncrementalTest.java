@@ -0,0 +1,311 @@
+package matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara cada paso de D* Lite con un Dijkstra hecho desde cero sobre la misma instantánea:
+ * el paso tiene que estar en un camino de costo mínimo hasta algún teléfono sin usar.
+ */
+class PlanificadorIncrementalTest {
+    private static final int SIN_CAMINO = -1;
+    private static final int INFRANQUEABLE = NucleoAmenaza.INFRANQUEABLE;
+
+    /**
+     * Un km mal llevado solo se nota en algunos mapas, así que se prueban muchos
+     */
+    static LongStream semillas() {
+        return LongStream.range(0, 200);
+    }
+
+    @ParameterizedTest
+    @MethodSource("semillas")
+    void elPasoSigueUnCaminoOptimoEnMapasAleatorios(long semilla) {
+        Random random = new Random(semilla);
+        Escenario escenario = new Escenario(24, 24);
+        escenario.murosAleatorios(random, 140);
+        for (int i = 0; i < 3; i++) {
+            int celda = escenario.celdaLibre(random);
+            escenario.agregarTelefono(celda);
+        }
+        escenario.ubicarNeo(escenario.celdaLibre(random));
+        for (int i = 0; i < 6; i++) {
+            escenario.agregarAgente(escenario.celdaLibre(random));
+        }
+
+        for (int turno = 1; turno <= 80; turno++) {
+            escenario.publicar(turno);
+            int paso = escenario.verificarPaso();
+
+            // Neo avanza (km crece) y, si llega a un teléfono, lo usa y aparece otro (se rehace la búsqueda)
+            if (paso != SIN_CAMINO) {
+                escenario.ubicarNeo(paso);
+                if (escenario.hayTelefono(paso)) {
+                    escenario.usarTelefono(paso);
+                    escenario.agregarTelefono(escenario.celdaLibre(random));
+                }
+            }
+            // De vez en cuando cambia un muro (también se rehace la búsqueda)
+            if (turno % 15 == 0) {
+                escenario.alternarMuro(random);
+            }
+            escenario.moverAgentes(random);
+        }
+        assertTrue(escenario.reconstrucciones > 0);
+    }
+
+    @Test
+    void conservaLaBusquedaMientrasNeoAvanza() {
+        Escenario escenario = new Escenario(30, 30);
+        escenario.agregarTelefono(escenario.mundo.indice(29, 29));
+        escenario.ubicarNeo(escenario.mundo.indice(0, 0));
+        escenario.agregarAgente(escenario.mundo.indice(10, 20));
+
+        escenario.publicar(1);
+        int paso = escenario.verificarPaso();
+        int expandidosIniciales = escenario.planificador.getNodosExpandidos();
+        Random random = new Random(5);
+        for (int turno = 2; turno <= 40 && paso != SIN_CAMINO; turno++) {
+            escenario.ubicarNeo(paso);
+            escenario.moverAgentes(random);
+            escenario.publicar(turno);
+            paso = escenario.verificarPaso();
+            // Con km la búsqueda anterior sigue valiendo: solo se revisa el vecindario del agente
+            assertTrue(escenario.planificador.getNodosExpandidos() < expandidosIniciales,
+                    "turno " + turno + " expandió " + escenario.planificador.getNodosExpandidos());
+        }
+    }
+
+    @Test
+    void rehaceLaBusquedaSiCambianLosMuros() {
+        Escenario escenario = new Escenario(12, 5);
+        escenario.agregarTelefono(escenario.mundo.indice(11, 2));
+        escenario.ubicarNeo(escenario.mundo.indice(0, 2));
+        escenario.publicar(1);
+        int paso = escenario.verificarPaso();
+        assertEquals(escenario.mundo.indice(1, 2), paso);
+
+        escenario.ubicarNeo(paso);
+        escenario.ocupacion.agregarMuro(2, 2);
+        escenario.publicar(2);
+        paso = escenario.verificarPaso();
+        assertNotEquals(escenario.mundo.indice(2, 2), paso);
+
+        // Un muro que encierra a Neo deja el teléfono inalcanzable
+        escenario.ocupacion.agregarMuro(1, 1);
+        escenario.ocupacion.agregarMuro(1, 3);
+        escenario.ocupacion.agregarMuro(0, 2);
+        escenario.publicar(3);
+        assertEquals(SIN_CAMINO, escenario.verificarPaso());
+    }
+
+    @Test
+    void rehaceLaBusquedaSiSeUsaUnTelefono() {
+        Escenario escenario = new Escenario(15, 3);
+        int cercano = escenario.mundo.indice(4, 1);
+        escenario.agregarTelefono(cercano);
+        escenario.agregarTelefono(escenario.mundo.indice(0, 1));
+        escenario.ubicarNeo(escenario.mundo.indice(3, 1));
+        escenario.publicar(1);
+        assertEquals(cercano, escenario.verificarPaso());
+
+        escenario.ubicarNeo(cercano);
+        escenario.usarTelefono(cercano);
+        escenario.publicar(2);
+        assertEquals(escenario.mundo.indice(3, 1), escenario.verificarPaso());
+    }
+
+    /**
+     * Mundo armado con las mismas piezas que usa MatrixGame para tomar las instantáneas
+     */
+    private static class Escenario {
+        final Mundo mundo;
+        final IndiceOcupacion ocupacion;
+        final AlmacenAgentes agentes;
+        final List<Telefono> telefonos;
+        final PlanificadorIncremental planificador;
+        final NucleoAmenaza nucleo;
+        // Celda de cada agente; el almacén solo aporta cuántos hay y cuáles viven
+        final List<Integer> celdasAgentes;
+        PosicionesTurno posiciones;
+        InstantaneaMundo vista;
+        int neo;
+        int reconstrucciones;
+        private int versionMuros;
+        private int versionTelefonos;
+
+        Escenario(int ancho, int alto) {
+            mundo = new Mundo(ancho, alto);
+            ocupacion = new IndiceOcupacion(mundo);
+            agentes = new AlmacenAgentes(mundo, 8);
+            telefonos = new ArrayList<>();
+            celdasAgentes = new ArrayList<>();
+            nucleo = NucleoAmenaza.porDefecto();
+            planificador = new PlanificadorIncremental(mundo, (x, y) -> nucleo.costo(vista, x, y), nucleo.getRadio());
+        }
+
+        void murosAleatorios(Random random, int cantidad) {
+            for (int i = 0; i < cantidad; i++) {
+                int celda = random.nextInt(mundo.getCeldas());
+                ocupacion.agregarMuro(mundo.x(celda), mundo.y(celda));
+            }
+        }
+
+        int celdaLibre(Random random) {
+            while (true) {
+                int celda = random.nextInt(mundo.getCeldas());
+                int x = mundo.x(celda);
+                int y = mundo.y(celda);
+                if (!ocupacion.hayMuro(x, y) && !ocupacion.hayTelefono(x, y) && celda != neo) {
+                    return celda;
+                }
+            }
+        }
+
+        void agregarTelefono(int celda) {
+            telefonos.add(new Telefono(mundo.x(celda), mundo.y(celda)));
+            ocupacion.agregarTelefono(mundo.x(celda), mundo.y(celda));
+        }
+
+        boolean hayTelefono(int celda) {
+            return ocupacion.hayTelefono(mundo.x(celda), mundo.y(celda));
+        }
+
+        void usarTelefono(int celda) {
+            for (Telefono tel : telefonos) {
+                if (!tel.isUsado() && mundo.indice(tel.getPosX(), tel.getPosY()) == celda) {
+                    tel.setUsado(true);
+                }
+            }
+            ocupacion.quitarTelefono(mundo.x(celda), mundo.y(celda));
+        }
+
+        void ubicarNeo(int celda) {
+            neo = celda;
+        }
+
+        void agregarAgente(int celda) {
+            agentes.agregar(agentes.getCantidad() + 1, mundo.x(celda), mundo.y(celda));
+            celdasAgentes.add(celda);
+        }
+
+        /**
+         * Cada agente da un paso al azar a una vecina sin muro, o se queda quieto
+         */
+        void moverAgentes(Random random) {
+            for (int i = 0; i < celdasAgentes.size(); i++) {
+                int direccion = random.nextInt(5);
+                if (direccion == 4) {
+                    continue;
+                }
+                int nx = mundo.x(celdasAgentes.get(i)) + Mundo.DX[direccion];
+                int ny = mundo.y(celdasAgentes.get(i)) + Mundo.DY[direccion];
+                if (mundo.contiene(nx, ny) && !ocupacion.hayMuro(nx, ny)) {
+                    celdasAgentes.set(i, mundo.indice(nx, ny));
+                }
+            }
+        }
+
+        /**
+         * Agrega un muro en una celda libre o quita uno existente
+         */
+        void alternarMuro(Random random) {
+            int celda = random.nextInt(mundo.getCeldas());
+            int x = mundo.x(celda);
+            int y = mundo.y(celda);
+            if (ocupacion.hayMuro(x, y)) {
+                ocupacion.quitarMuro(x, y);
+            } else if (!ocupacion.hayTelefono(x, y) && celda != neo) {
+                ocupacion.agregarMuro(x, y);
+            }
+        }
+
+        /**
+         * Publica una instantánea nueva, como MatrixGame al cerrar el turno
+         */
+        void publicar(int turno) {
+            if (posiciones == null || posiciones.getRanuras() != agentes.getCantidad() + 1) {
+                posiciones = new PosicionesTurno(mundo, agentes.getCantidad() + 1);
+            }
+            posiciones.iniciar(0, mundo.x(neo), mundo.y(neo));
+            for (int i = 0; i < celdasAgentes.size(); i++) {
+                int celda = celdasAgentes.get(i);
+                posiciones.iniciar(i + 1, mundo.x(celda), mundo.y(celda));
+            }
+            InstantaneaMundo nueva = InstantaneaMundo.tomar(turno, ocupacion, posiciones, agentes, true, telefonos, vista);
+            if (ocupacion.getVersionMuros() != versionMuros || ocupacion.getVersionTelefonos() != versionTelefonos) {
+                reconstrucciones++;
+                versionMuros = ocupacion.getVersionMuros();
+                versionTelefonos = ocupacion.getVersionTelefonos();
+            }
+            vista = nueva;
+        }
+
+        /**
+         * Pide el paso a D* Lite y comprueba que su costo más el resto del camino sea el óptimo
+         */
+        int verificarPaso() {
+            int paso = planificador.siguientePaso(vista, neo);
+            long esperado = costoMinimo(neo);
+            if (esperado == Long.MAX_VALUE) {
+                assertEquals(SIN_CAMINO, paso, "turno " + vista.getTurno() + ": no hay camino");
+                return paso;
+            }
+            assertNotEquals(SIN_CAMINO, paso, "turno " + vista.getTurno() + ": había camino de costo " + esperado);
+            assertEquals(1, Math.abs(mundo.x(paso) - mundo.x(neo)) + Math.abs(mundo.y(paso) - mundo.y(neo)));
+            long costoPaso = nucleo.costo(vista, mundo.x(paso), mundo.y(paso));
+            assertEquals(esperado, costoPaso + costoMinimo(paso), "turno " + vista.getTurno());
+            return paso;
+        }
+
+        /**
+         * Dijkstra desde cero con el costo de entrar a cada celda, hasta el teléfono sin usar más barato
+         */
+        long costoMinimo(int origen) {
+            long[] distancias = new long[mundo.getCeldas()];
+            Arrays.fill(distancias, Long.MAX_VALUE);
+            distancias[origen] = 0;
+            PriorityQueue<long[]> cola = new PriorityQueue<>(Comparator.comparingLong(entrada -> entrada[0]));
+            cola.add(new long[]{0, origen});
+            while (!cola.isEmpty()) {
+                long[] entrada = cola.poll();
+                int celda = (int) entrada[1];
+                if (entrada[0] > distancias[celda]) {
+                    continue;
+                }
+                if (esTelefonoSinUsar(celda)) {
+                    return entrada[0];
+                }
+                for (int i = 0; i < 4; i++) {
+                    int nx = mundo.x(celda) + Mundo.DX[i];
+                    int ny = mundo.y(celda) + Mundo.DY[i];
+                    if (!mundo.contiene(nx, ny)) {
+                        continue;
+                    }
+                    int paso = nucleo.costo(vista, nx, ny);
+                    int vecina = mundo.indice(nx, ny);
+                    if (paso != INFRANQUEABLE && entrada[0] + paso < distancias[vecina]) {
+                        distancias[vecina] = entrada[0] + paso;
+                        cola.add(new long[]{distancias[vecina], vecina});
+                    }
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        private boolean esTelefonoSinUsar(int celda) {
+            for (int i = 0; i < vista.getCantidadTelefonos(); i++) {
+                if (vista.celdaTelefono(i) == celda) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guarda, carga y reanuda partidas con semilla: una partida reanudada desde un punto
+ * de control tiene que terminar en el mismo turno y con el mismo tablero que la
+ * partida jugada de corrido, en cada modo de ejecución.
+ */
+class PuntoControlTest {
+    @TempDir
+    Path carpeta;
+
+    @Test
+    void cargarDevuelveLoQueSeGuardo() throws IOException {
+        Path archivo = carpeta.resolve("partida.pc");
+        MatrixGame juego = nuevaPartida(ModoEjecucion.POOL);
+        juego.iniciarPasoAPaso();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(juego.avanzarTurno());
+        }
+        juego.guardarPuntoControl(archivo);
+
+        PuntoControl punto = PuntoControl.cargar(archivo);
+        InstantaneaMundo vista = juego.getInstantanea();
+        assertEquals(60, punto.getAncho());
+        assertEquals(60, punto.getAlto());
+        assertEquals(5, punto.getTurno());
+        assertEquals(juego.getSemilla(), punto.getSemilla());
+        assertEquals(juego.getConfiguracion(), punto.getConfiguracion());
+        assertEquals(vista.celda(0), punto.getCeldaNeo());
+        assertEquals(vista.getCantidadPersonajes() - 1, punto.getCantidadAgentes());
+        for (int i = 0; i < punto.getCantidadAgentes(); i++) {
+            assertEquals(vista.celda(i + 1), punto.celdaAgente(i));
+            assertEquals(vista.estaVivo(i + 1), punto.isAgenteVivo(i));
+        }
+        int muros = 0;
+        for (int celda = 0; celda < 60 * 60; celda++) {
+            muros += vista.hayMuro(celda % 60, celda / 60) ? 1 : 0;
+        }
+        assertEquals(muros, punto.getCantidadMuros());
+        for (int i = 0; i < punto.getCantidadMuros(); i++) {
+            assertTrue(vista.hayMuro(punto.celdaMuro(i) % 60, punto.celdaMuro(i) / 60));
+        }
+        juego.terminarPartida();
+    }
+
+    @Test
+    void laCapaDeMurosSeEscribeUnaSolaVez() throws IOException {
+        Path archivo = carpeta.resolve("partida.pc");
+        MatrixGame juego = nuevaPartida(ModoEjecucion.POOL);
+        juego.iniciarPasoAPaso();
+        juego.guardarPuntoControl(archivo);
+        Path capa = capaDeMuros();
+        // Si se volviera a escribir, el archivo renombrado tendría otra fecha
+        FileTime marca = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(capa, marca);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(juego.avanzarTurno());
+        }
+        juego.guardarPuntoControl(archivo);
+        juego.terminarPartida();
+        assertEquals(capa, capaDeMuros());
+        assertEquals(marca, Files.getLastModifiedTime(capa));
+        assertEquals(3, PuntoControl.cargar(archivo).getTurno());
+    }
+
+    @Test
+    void rechazaUnaCapaDeMurosDaniada() throws IOException {
+        Path archivo = carpeta.resolve("partida.pc");
+        MatrixGame juego = nuevaPartida(ModoEjecucion.POOL);
+        juego.iniciarPasoAPaso();
+        juego.guardarPuntoControl(archivo);
+        juego.terminarPartida();
+
+        Path capa = capaDeMuros();
+        byte[] bytes = Files.readAllBytes(capa);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(capa, bytes);
+        assertThrows(IOException.class, () -> PuntoControl.cargar(archivo));
+    }
+
+    @Test
+    void rechazaUnArchivoDaniado() throws IOException {
+        Path archivo = carpeta.resolve("partida.pc");
+        MatrixGame juego = nuevaPartida(ModoEjecucion.POOL);
+        juego.iniciarPasoAPaso();
+        juego.guardarPuntoControl(archivo);
+        juego.terminarPartida();
+
+        byte[] bytes = Files.readAllBytes(archivo);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(archivo, bytes);
+        assertThrows(IOException.class, () -> PuntoControl.cargar(archivo));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ModoEjecucion.class)
+    void laPartidaReanudadaTerminaIgualQueLaOriginal(ModoEjecucion modo) throws IOException {
+        MatrixGame completa = nuevaPartida(modo);
+        completa.jugarSinConsola();
+
+        Path archivo = carpeta.resolve("partida-" + modo + ".pc");
+        MatrixGame guardada = nuevaPartida(modo);
+        guardada.setPuntoControl(archivo, 20);
+        guardada.jugarSinConsola();
+        assertEquals(completa.getTurnoActual(), guardada.getTurnoActual());
+
+        MatrixGame reanudada = MatrixGame.reanudar(archivo);
+        // La configuración viene del punto de control, no de los valores por defecto
+        assertEquals(completa.getConfiguracion(), reanudada.getConfiguracion());
+        int turnoGuardado = reanudada.getTurnoActual();
+        assertTrue(turnoGuardado > 0 && turnoGuardado < completa.getTurnoActual(),
+                "se guardó en el turno " + turnoGuardado + " de " + completa.getTurnoActual());
+        reanudada.jugarSinConsola();
+
+        assertEquals(completa.getTurnoActual(), reanudada.getTurnoActual());
+        assertEquals(completa.neoEscapo(), reanudada.neoEscapo());
+        assertEquals(completa.getNeo().isVivo(), reanudada.getNeo().isVivo());
+        InstantaneaMundo esperada = completa.getInstantanea();
+        InstantaneaMundo obtenida = reanudada.getInstantanea();
+        assertEquals(esperada.getCantidadPersonajes(), obtenida.getCantidadPersonajes());
+        for (int ranura = 0; ranura < esperada.getCantidadPersonajes(); ranura++) {
+            assertEquals(esperada.celda(ranura), obtenida.celda(ranura), "ranura " + ranura);
+        }
+    }
+
+    /**
+     * La única capa de muros de la carpeta
+     */
+    private Path capaDeMuros() throws IOException {
+        try (DirectoryStream<Path> capas = Files.newDirectoryStream(carpeta, "*.muros-*")) {
+            Iterator<Path> iterador = capas.iterator();
+            assertTrue(iterador.hasNext(), "no se escribió la capa de muros");
+            Path capa = iterador.next();
+            assertFalse(iterador.hasNext(), "hay más de una capa de muros");
+            return capa;
+        }
+    }
+
+    /**
+     * Partida con semilla y opciones distintas de las de por defecto, para notar si se pierden al reanudar
+     */
+    private static MatrixGame nuevaPartida(ModoEjecucion modo) {
+        MatrixGame juego = new MatrixGame(60, 60);
+        juego.setSemilla(1);
+        juego.setResolucionDeterminista(true);
+        juego.setModoEjecucion(modo);
+        juego.setCantidadAgentes(30);
+        juego.setMaxMuros(600);
+        juego.setMaxTelefonos(1);
+        juego.setMaxTurnos(500);
+        juego.setEstrategiaNeo(EstrategiaNeo.INCREMENTAL);
+        juego.setNucleoAmenaza(new NucleoAmenaza(80, 20, 5));
+        juego.setUsarCampoPersecucion(false);
+        return juego;
+    }
+}
@@ -0,0 +1,139 @@
+package matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Graba una partida con semilla, la juega paso a paso anotando las posiciones de cada
+ * turno y comprueba que el reproductor las reconstruye igual, tanto avanzando turno a
+ * turno como saltando a turnos al azar (hacia adelante y hacia atrás). Lo mismo con un
+ * diario escrito y leído en trozos chicos, para cubrir los cortes entre regiones.
+ */
+class ReproductorPartidaTest {
+    @TempDir
+    Path carpeta;
+
+    @Test
+    void laReproduccionCoincideConLaPartidaJugada() throws Exception {
+        Path archivo = carpeta.resolve("partida.mtx");
+        MatrixGame juego = new MatrixGame(120, 120);
+        juego.setSemilla(14);
+        juego.setModoEjecucion(ModoEjecucion.POOL);
+        juego.setCantidadAgentes(6);
+        juego.setMaxMuros(2500);
+        juego.setMaxTelefonos(1);
+        juego.setMaxTurnos(400);
+        juego.setArchivoDiario(archivo);
+
+        List<int[]> posiciones = new ArrayList<>();
+        juego.iniciarPasoAPaso();
+        posiciones.add(celdas(juego.getInstantanea()));
+        while (juego.avanzarTurno()) {
+            assertEquals(posiciones.size(), juego.getTurnoActual());
+            posiciones.add(celdas(juego.getInstantanea()));
+        }
+        int turnos = juego.getTurnoActual();
+        // Con menos turnos no se usarían los fotogramas clave (uno cada 64)
+        assertTrue(turnos > 2 * 64, "la partida duró solo " + turnos + " turnos");
+
+        try (ReproductorPartida reproductor = new ReproductorPartida(archivo)) {
+            assertEquals(0, reproductor.getTurnoInicial());
+            assertReproduce(posiciones, reproductor);
+            assertEquals(juego.neoEscapo(), reproductor.isNeoEscapo());
+            assertEquals(juego.getNeo().isVivo(), reproductor.isNeoVivo());
+        }
+    }
+
+    /**
+     * Escribe un diario con regiones de pocos KB y lo lee con una ventana todavía más
+     * chica, que no es múltiplo del registro: así la partida cruza decenas de cortes
+     * del escritor y del lector, lo mismo que pasa cada 16 MiB en un diario de varios GB
+     */
+    @Test
+    void laReproduccionCruzaLosCortesDeRegionYDeVentana() throws Exception {
+        Path archivo = carpeta.resolve("regiones.mtx");
+        int tamanioRegion = 4096;
+        Mundo mundo = new Mundo(40, 30);
+        int ranuras = 50;
+        Random random = new Random(9);
+        PosicionesTurno posicionesTurno = new PosicionesTurno(mundo, ranuras);
+        for (int ranura = 0; ranura < ranuras; ranura++) {
+            posicionesTurno.iniciar(ranura, random.nextInt(40), random.nextInt(30));
+        }
+        List<Muro> muros = List.of(new Muro(1, 1), new Muro(2, 1));
+        List<Telefono> telefonos = List.of(new Telefono(39, 29));
+
+        List<int[]> posiciones = new ArrayList<>();
+        posiciones.add(posicionesTurno.copiarCeldas());
+        DiarioPartida diario = new DiarioPartida(archivo, 16, tamanioRegion);
+        diario.comenzar(mundo, 0, muros, telefonos, posicionesTurno);
+        int turnos = 500;
+        for (int turno = 1; turno <= turnos; turno++) {
+            // Como MatrixGame al cerrar la aplicación: marcador, movimientos, publicación y fotograma
+            diario.registrarTurno(turno);
+            for (int ranura = 0; ranura < ranuras; ranura++) {
+                int celda = posicionesTurno.celda(ranura);
+                if (random.nextInt(3) == 0) {
+                    celda = random.nextInt(mundo.getCeldas());
+                    diario.registrarMovimiento(ranura, celda);
+                }
+                posicionesTurno.escribir(ranura, mundo.x(celda), mundo.y(celda));
+            }
+            posicionesTurno.intercambiar();
+            diario.cerrarTurno(turno, posicionesTurno);
+            posiciones.add(posicionesTurno.copiarCeldas());
+        }
+        diario.registrarCaptura(7, posicionesTurno.celda(0));
+        diario.cerrar(turnos);
+        assertTrue(Files.size(archivo) > 20L * tamanioRegion, "el diario ocupa " + Files.size(archivo) + " bytes");
+
+        try (ReproductorPartida reproductor = new ReproductorPartida(archivo, 1001)) {
+            assertReproduce(posiciones, reproductor);
+            assertFalse(reproductor.isNeoVivo());
+            assertEquals(7, reproductor.getCaptor());
+        }
+    }
+
+    /**
+     * Recorre la partida turno a turno y después salta a turnos al azar (hacia adelante y hacia atrás)
+     */
+    private static void assertReproduce(List<int[]> posiciones, ReproductorPartida reproductor) {
+        int turnos = posiciones.size() - 1;
+        assertEquals(turnos, reproductor.getTurnos());
+        do {
+            assertPosiciones(posiciones.get(reproductor.getTurno()), reproductor);
+        } while (reproductor.avanzarTurno());
+        assertEquals(turnos, reproductor.getTurno());
+
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            int turno = random.nextInt(turnos + 1);
+            reproductor.irATurno(turno);
+            assertEquals(turno, reproductor.getTurno());
+            assertPosiciones(posiciones.get(turno), reproductor);
+        }
+        // Vuelve al final para dejar aplicados la captura o el teléfono del último turno
+        reproductor.irATurno(turnos);
+    }
+
+    private static int[] celdas(InstantaneaMundo vista) {
+        int[] celdas = new int[vista.getCantidadPersonajes()];
+        for (int ranura = 0; ranura < celdas.length; ranura++) {
+            celdas[ranura] = vista.celda(ranura);
+        }
+        return celdas;
+    }
+
+    private static void assertPosiciones(int[] esperadas, ReproductorPartida reproductor) {
+        assertEquals(esperadas.length, reproductor.getRanuras());
+        for (int ranura = 0; ranura < esperadas.length; ranura++) {
+            assertEquals(esperadas[ranura], reproductor.celda(ranura),
+                    "turno " + reproductor.getTurno() + ", ranura " + ranura);
+        }
+    }
+}